@@ -0,0 +1,39 @@
+/**
+ * BenchmarkRunner.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH GC profiler always enabled (equivalent to
+ * {@code -prof gc}), so that allocation per operation
+ * ({@code gc.alloc.rate.norm}) is reported alongside throughput. Any other
+ * JMH command-line options are passed through.
+ *
+ * @author Nicholas Bennett
+ */
+public class BenchmarkRunner {
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args  JMH command-line options.
+   * @throws CommandLineOptionException   If the options are invalid.
+   * @throws RunnerException              If a benchmark fails.
+   */
+  public static void main(String[] args)
+      throws CommandLineOptionException, RunnerException {
+    new Runner(new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+
+}
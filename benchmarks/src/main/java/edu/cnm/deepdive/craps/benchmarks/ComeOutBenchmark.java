@@ -0,0 +1,76 @@
+/**
+ * ComeOutBenchmark.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import edu.cnm.deepdive.craps.ComeOutResolver;
+import edu.cnm.deepdive.craps.DiceSource;
+import edu.cnm.deepdive.craps.RuleTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of {@link ComeOutResolver}, comparing the scalar loop with the
+ * Vector API path on the same block of pre-generated rolls; the score is per
+ * roll. The forked JVM is started with the {@code jdk.incubator.vector}
+ * module, so that the vector path is available.
+ *
+ * @author Nicholas Bennett
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ComeOutBenchmark {
+
+  private static final long SEED = 0x5eed;
+  private static final int ROLLS = 1024;
+
+  @Param({"false", "true"})
+  private boolean vectorize;
+
+  private final byte[] rolls = new byte[ROLLS];
+  private ComeOutResolver resolver;
+
+  /**
+   * Fills the block of rolls and creates the resolver under test.
+   */
+  @Setup
+  public void setup() {
+    DiceSource.bulk(SEED).nextRolls(rolls, 0, ROLLS);
+    resolver = new ComeOutResolver(RuleTable.PASS_LINE, vectorize);
+    if (vectorize && !resolver.isVectorized()) {
+      throw new IllegalStateException("Vector API not available.");
+    }
+  }
+
+  /**
+   * Classifies a block of come-out rolls. Only {@link ComeOutResolver#resolve}
+   * is timed: the tallies are not read back, since doing so costs more on the
+   * scalar path (which counts by roll code) than on the vector path (which
+   * counts by sum).
+   *
+   * @param blackhole   Sink for the resolver, so its counts remain live.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROLLS)
+  public void resolveBlock(Blackhole blackhole) {
+    resolver.resolve(rolls, 0, ROLLS);
+    blackhole.consume(resolver);
+  }
+
+}
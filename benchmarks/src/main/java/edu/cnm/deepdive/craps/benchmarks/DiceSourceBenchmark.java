@@ -0,0 +1,83 @@
+/**
+ * DiceSourceBenchmark.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import edu.cnm.deepdive.craps.DiceSource;
+import edu.cnm.deepdive.craps.SimulationResult;
+import edu.cnm.deepdive.craps.Simulator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the available {@link DiceSource} implementations, both in
+ * isolation and as the source of rolls for the bulk {@link Simulator}. Each
+ * source is created by {@link DiceSource#of(String, long)}, so
+ * {@value DiceSource#SPLITTABLE_ALGORITHM} measures the default source of
+ * {@link Simulator}.
+ *
+ * @author Nicholas Bennett
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiceSourceBenchmark {
+
+  private static final String THREAD_LOCAL = "ThreadLocalRandom";
+  private static final long SEED = 0x5eed;
+  private static final int ROUNDS = 1024;
+
+  @Param({"SplittableRandom", "Bulk", "L64X128MixRandom", "Xoshiro256PlusPlus", "Random", THREAD_LOCAL})
+  private String algorithm;
+
+  private DiceSource dice;
+  private Simulator simulator;
+
+  /**
+   * Creates the source and simulator under test.
+   */
+  @Setup
+  public void setup() {
+    dice = algorithm.equals(THREAD_LOCAL)
+        ? DiceSource.threadLocal()
+        : DiceSource.of(algorithm, SEED);
+    simulator = new Simulator(dice);
+  }
+
+  /**
+   * Draws a single roll.
+   *
+   * @return    roll code
+   */
+  @Benchmark
+  public int nextRoll() {
+    return dice.nextRoll();
+  }
+
+  /**
+   * Plays complete pass line rounds with {@link Simulator#run(long)}; the
+   * score is per round.
+   *
+   * @return    tallies
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROUNDS)
+  public SimulationResult simulateRound() {
+    return simulator.run(ROUNDS);
+  }
+
+}
@@ -0,0 +1,63 @@
+/**
+ * OldSingleRound.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import edu.cnm.deepdive.craps.OldStateMachine;
+
+/**
+ * {@link OldStateMachine} counterpart of {@link SingleRound}, used as the
+ * baseline for comparison.
+ *
+ * @author Nicholas Bennett
+ */
+class OldSingleRound extends OldStateMachine
+    implements OldStateMachine.Playable, OldStateMachine.Continuable,
+    OldStateMachine.Display {
+
+  private boolean played;
+
+  /**
+   * Initializes the instance as its own set of callbacks.
+   */
+  OldSingleRound() {
+    setPlayable(this);
+    setContinuable(this);
+    setDisplay(this);
+  }
+
+  /**
+   * Plays a single round, and returns the running tally of wins.
+   *
+   * @return    wins
+   */
+  int playRound() {
+    played = false;
+    setState(PlayState.COME_OUT);
+    play();
+    return getWins();
+  }
+
+  @Override
+  public boolean playAgain(int wins, int losses) {
+    boolean result = !played;
+    played = true;
+    return result;
+  }
+
+  @Override
+  public boolean continuePlay(int wins, int losses, int point) {
+    return true;
+  }
+
+  @Override
+  public void update(int[] roll) {
+    // Do nothing.
+  }
+
+  @Override
+  public void update(int die1, int die2) {
+    // Do nothing.
+  }
+
+}
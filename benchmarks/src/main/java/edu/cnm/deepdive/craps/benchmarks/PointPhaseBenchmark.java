@@ -0,0 +1,57 @@
+/**
+ * PointPhaseBenchmark.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the point-phase loop of
+ * {@link edu.cnm.deepdive.craps.StateMachine#play()}, using a scripted roll
+ * sequence so that every round rolls for the point a fixed number of times.
+ *
+ * @author Nicholas Bennett
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PointPhaseBenchmark {
+
+  @Param({"1", "10", "100"})
+  private int pointRolls;
+
+  private SingleRound round;
+
+  /**
+   * Creates the state machine under test.
+   */
+  @Setup
+  public void setup() {
+    round = new SingleRound(new ScriptedDice(pointRolls), true);
+  }
+
+  /**
+   * Plays a round with {@code pointRolls} unresolved rolls in the point phase.
+   *
+   * @return    running tally of wins
+   */
+  @Benchmark
+  public int pointPhase() {
+    return round.playRound();
+  }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * ScriptedDice.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import edu.cnm.deepdive.craps.DiceSource;
+import edu.cnm.deepdive.craps.Rolls;
+
+/**
+ * {@link DiceSource} that cycles through a fixed script of rolls, so that the
+ * number of rolls in each round is known in advance.
+ *
+ * @author Nicholas Bennett
+ */
+class ScriptedDice implements DiceSource {
+
+  private final int[] script;
+  private int position;
+  private int pendingDie;
+
+  /**
+   * Initializes the source with a script of a single round: a come-out roll of
+   * 6 (establishing the point), the specified number of rolls that neither
+   * make the point nor seven out, and a final roll of 6 (making the point).
+   *
+   * @param pointRolls    Number of unresolved rolls in the point phase.
+   */
+  ScriptedDice(int pointRolls) {
+    script = new int[pointRolls + 2];
+    int[] filler = {Rolls.pack(2, 2), Rolls.pack(4, 5), Rolls.pack(1, 1), Rolls.pack(5, 6)};
+    script[0] = Rolls.pack(3, 3);
+    for (int i = 0; i < pointRolls; i++) {
+      script[i + 1] = filler[i % filler.length];
+    }
+    script[pointRolls + 1] = Rolls.pack(2, 4);
+  }
+
+  /**
+   * Returns the dice of the scripted rolls one at a time: the first
+   * invocation returns the first die of the next roll, and the second returns
+   * the other die of the same roll.
+   */
+  @Override
+  public int nextDie() {
+    if (pendingDie != 0) {
+      int die = pendingDie;
+      pendingDie = 0;
+      return die;
+    }
+    int roll = nextRoll();
+    pendingDie = Rolls.die2(roll);
+    return Rolls.die1(roll);
+  }
+
+  @Override
+  public int nextRoll() {
+    int roll = script[position];
+    position = (position + 1 < script.length) ? position + 1 : 0;
+    return roll;
+  }
+
+  @Override
+  public DiceSource split() {
+    return new ScriptedDice(script.length - 2);
+  }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * SessionLoadTest.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import edu.cnm.deepdive.craps.LineSource;
+import edu.cnm.deepdive.craps.SessionHost;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of {@link SessionHost}: opens a large number of sessions (50,000
+ * by default), each of which blocks at its first prompt, as an idle player's
+ * session would; reports the platform thread count and heap in use while all
+ * of them are idle; then releases every session and waits for all to end.
+ * <p>
+ * With virtual threads (JDK 21 or later), the platform thread count stays
+ * roughly constant, regardless of the number of sessions. With platform
+ * threads, the host accepts only a bounded number of sessions (see
+ * {@link SessionHost#getMaxSessions()}), so the test opens no more than that.
+ *
+ * @author Nicholas Bennett
+ */
+public class SessionLoadTest {
+
+  private static final int DEFAULT_SESSIONS = 50_000;
+  private static final long POLL_INTERVAL = 100;
+
+  /**
+   * Runs the load test.
+   *
+   * @param args  Command-line arguments: number of sessions (optional,
+   *              default 50,000).
+   * @throws InterruptedException   If interrupted while waiting.
+   * @throws ExecutionException     If a session fails.
+   */
+  public static void main(String[] args) throws InterruptedException, ExecutionException {
+    int requested = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_SESSIONS;
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    try (SessionHost host = new SessionHost()) {
+      int sessions = Math.min(requested, host.getMaxSessions());
+      if (sessions < requested) {
+        System.out.printf("Virtual threads are unavailable; limited to %,d sessions.%n",
+            sessions);
+      }
+      CountDownLatch idle = new CountDownLatch(sessions);
+      CountDownLatch release = new CountDownLatch(1);
+      LineSource input = (format, params) -> {
+        idle.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        return "n";
+      };
+      System.out.printf("Opening %,d sessions on %s threads.%n",
+          sessions, host.isVirtual() ? "virtual" : "platform");
+      long start = System.nanoTime();
+      List<Future<?>> futures = new ArrayList<>(sessions);
+      for (int i = 0; i < sessions; i++) {
+        futures.add(host.open(input, new PrintWriter(Writer.nullWriter())));
+      }
+      while (!idle.await(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+        System.out.printf("  %,d of %,d sessions idle...%n", sessions - idle.getCount(), sessions);
+      }
+      long elapsed = System.nanoTime() - start;
+      Runtime runtime = Runtime.getRuntime();
+      System.out.printf("%,d sessions idle after %.3f s: active = %,d; platform threads = %,d; "
+          + "heap used = %,d KiB%n",
+          sessions, elapsed / 1e9, host.getActiveSessions(), threads.getThreadCount(),
+          (runtime.totalMemory() - runtime.freeMemory()) / 1024);
+      release.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      System.out.printf("All sessions ended after %.3f s; active = %d.%n",
+          (System.nanoTime() - start) / 1e9, host.getActiveSessions());
+    }
+  }
+
+}
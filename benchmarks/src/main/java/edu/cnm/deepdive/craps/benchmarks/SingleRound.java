@@ -0,0 +1,72 @@
+/**
+ * SingleRound.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import edu.cnm.deepdive.craps.DiceSource;
+import edu.cnm.deepdive.craps.StateMachine;
+
+/**
+ * {@link StateMachine} subclass that acts as its own no-op callbacks, and can
+ * be reset to play exactly one more round per invocation of
+ * {@link #playRound()}.
+ *
+ * @author Nicholas Bennett
+ */
+class SingleRound extends StateMachine
+    implements StateMachine.Playable, StateMachine.Continuable, StateMachine.Display {
+
+  private final boolean rollForPoint;
+  private boolean played;
+
+  /**
+   * Initializes the instance with the specified source of rolls.
+   *
+   * @param dice            Source of rolls.
+   * @param rollForPoint    Flag indicating whether the dice are rolled for the
+   *                        point; if {@code false}, only the come-out roll is
+   *                        resolved.
+   */
+  SingleRound(DiceSource dice, boolean rollForPoint) {
+    super(dice);
+    this.rollForPoint = rollForPoint;
+    setPlayable(this);
+    setContinuable(this);
+    setDisplay(this);
+  }
+
+  /**
+   * Plays a single round, and returns the running tally of wins.
+   *
+   * @return    wins
+   */
+  int playRound() {
+    played = false;
+    setState(PlayState.COME_OUT);
+    play();
+    return getWins();
+  }
+
+  @Override
+  public boolean playAgain(int wins, int losses) {
+    boolean result = !played;
+    played = true;
+    return result;
+  }
+
+  @Override
+  public boolean continuePlay(int point) {
+    return rollForPoint;
+  }
+
+  @Override
+  public void update(int[] roll) {
+    // Do nothing.
+  }
+
+  @Override
+  public void update(int die1, int die2) {
+    // Do nothing.
+  }
+
+}
@@ -0,0 +1,81 @@
+/**
+ * StateMachineBenchmark.java
+ */
+package edu.cnm.deepdive.craps.benchmarks;
+
+import edu.cnm.deepdive.craps.DiceSource;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of single rounds played through the callback-driven
+ * {@link edu.cnm.deepdive.craps.StateMachine#play()}, with no-op callbacks,
+ * against {@link edu.cnm.deepdive.craps.OldStateMachine} as a baseline.
+ *
+ * @author Nicholas Bennett
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StateMachineBenchmark {
+
+  private static final long SEED = 0x5eed;
+
+  private SingleRound round;
+  private SingleRound comeOut;
+  private OldSingleRound oldRound;
+
+  /**
+   * Creates the state machines under test.
+   */
+  @Setup
+  public void setup() {
+    round = new SingleRound(DiceSource.splittable(SEED), true);
+    comeOut = new SingleRound(DiceSource.splittable(SEED), false);
+    oldRound = new OldSingleRound();
+  }
+
+  /**
+   * Plays a complete round.
+   *
+   * @return    running tally of wins
+   */
+  @Benchmark
+  public int playRound() {
+    return round.playRound();
+  }
+
+  /**
+   * Resolves only the come-out roll; if a point is established, the shooter
+   * walks away immediately.
+   *
+   * @return    running tally of wins
+   */
+  @Benchmark
+  public int comeOut() {
+    return comeOut.playRound();
+  }
+
+  /**
+   * Plays a complete round with {@link edu.cnm.deepdive.craps.OldStateMachine}.
+   *
+   * @return    running tally of wins
+   */
+  @Benchmark
+  public int oldPlayRound() {
+    return oldRound.playRound();
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * BetType.java
+ */
+package edu.cnm.deepdive.craps;
+
+/**
+ * An {@code enum} of the wagers supported by {@link Wagers}.
+ *
+ * @author Nicholas Bennett
+ */
+public enum BetType {
+
+  /** Pass line bet, made on the come-out roll. */
+  PASS(false),
+  /** Don't pass bet (12 barred), made on the come-out roll. */
+  DONT_PASS(false),
+  /** Come bet, made while a point is established. */
+  COME(false),
+  /** Don't come bet (12 barred), made while a point is established. */
+  DONT_COME(false),
+  /** Free odds behind a pass line bet. */
+  PASS_ODDS(false),
+  /** Free odds laid behind a don't pass bet. */
+  DONT_PASS_ODDS(false),
+  /** Free odds on a come bet that has traveled to a number. */
+  COME_ODDS(true),
+  /** Free odds laid on a don't come bet that has traveled to a number. */
+  DONT_COME_ODDS(true),
+  /** Place bet to win on a number. */
+  PLACE(true);
+
+  private final boolean numbered;
+
+  BetType(boolean numbered) {
+    this.numbered = numbered;
+  }
+
+  /**
+   * Returns a flag indicating whether a bet of this type is made on a specific
+   * number (4, 5, 6, 8, 9, or 10).
+   *
+   * @return    {@code true} if a number must be specified.
+   */
+  public boolean isNumbered() {
+    return numbered;
+  }
+
+}
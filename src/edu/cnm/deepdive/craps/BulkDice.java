@@ -0,0 +1,135 @@
+/**
+ * BulkDice.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Implementation of {@link DiceSource} that extracts many rolls from each
+ * 64-bit random word, instead of making a separate bounded draw for each roll
+ * (or, worse, for each die). The words are generated by the SplitMix64
+ * algorithm (as in {@link SplitMixDice}); the top 63 bits of a word are
+ * accepted only if they are less than {@code 70 * 36^11}, in which case their
+ * 11 low-order base-36 digits are independent, exactly uniform roll codes.
+ * Fewer than 0.12% of words are rejected, so one RNG step (and about 11
+ * constant divisions, which the JIT compiler reduces to multiplications)
+ * yields 11 rolls.
+ * <p>
+ * {@link #nextRolls(byte[], int, int)} fills a buffer in bulk; rolls returned
+ * by {@link #nextRoll()} and by {@link #nextRolls(byte[], int, int)} come from
+ * the same sequence, in order, and may be mixed freely. The source supports
+ * {@link #split()} and checkpointing, but its rolls differ from those of
+ * {@link SplitMixDice} for the same seed.
+ *
+ * @author Nicholas Bennett
+ */
+final class BulkDice implements DiceSource {
+
+  private static final int DIGITS = 11;
+  private static final long LIMIT = 70L * 36 * 36 * 36 * 36 * 36 * 36 * 36 * 36 * 36 * 36 * 36;
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private long seed;
+  private long gamma;
+  private long word;
+  private int remaining;
+
+  BulkDice(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  private BulkDice(long seed, long gamma) {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  /**
+   * Returns a new source with an unpredictable seed and gamma.
+   */
+  static BulkDice unseeded() {
+    SplittableRandom rng = new SplittableRandom();
+    return new BulkDice(rng.nextLong(), SplitMixDice.mixGamma(rng.nextLong()));
+  }
+
+  @Override
+  public int nextDie() {
+    return nextRoll() % Rolls.FACES + 1;
+  }
+
+  @Override
+  public int nextRoll() {
+    if (remaining == 0) {
+      word = nextWord();
+      remaining = DIGITS;
+    }
+    long quotient = word / Rolls.COMBINATIONS;
+    int roll = (int) (word - quotient * Rolls.COMBINATIONS);
+    word = quotient;
+    remaining--;
+    return roll;
+  }
+
+  @Override
+  public void nextRolls(byte[] rolls, int offset, int length) {
+    int end = offset + length;
+    while (offset < end && remaining > 0) {
+      rolls[offset++] = (byte) nextRoll();
+    }
+    while (end - offset >= DIGITS) {
+      long value = nextWord();
+      for (int i = 0; i < DIGITS; i++) {
+        long quotient = value / Rolls.COMBINATIONS;
+        rolls[offset++] = (byte) (value - quotient * Rolls.COMBINATIONS);
+        value = quotient;
+      }
+    }
+    while (offset < end) {
+      rolls[offset++] = (byte) nextRoll();
+    }
+  }
+
+  @Override
+  public DiceSource split() {
+    return new BulkDice(SplitMixDice.mix64(nextSeed()), SplitMixDice.mixGamma(nextSeed()));
+  }
+
+  @Override
+  public void saveState(DataOutput out) throws IOException {
+    out.writeLong(seed);
+    out.writeLong(gamma);
+    out.writeLong(word);
+    out.writeByte(remaining);
+  }
+
+  @Override
+  public void restoreState(DataInput in) throws IOException {
+    long seed = in.readLong();
+    long gamma = in.readLong();
+    long word = in.readLong();
+    int remaining = in.readByte();
+    if ((gamma & 1) == 0 || remaining < 0 || remaining > DIGITS) {
+      throw new IOException("Invalid bulk dice state.");
+    }
+    this.seed = seed;
+    this.gamma = gamma;
+    this.word = word;
+    this.remaining = remaining;
+  }
+
+  private long nextWord() {
+    long value;
+    do {
+      value = SplitMixDice.mix64(nextSeed()) >>> 1;
+    } while (value >= LIMIT);
+    return value;
+  }
+
+  private long nextSeed() {
+    return seed += gamma;
+  }
+
+}
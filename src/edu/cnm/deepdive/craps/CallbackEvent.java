@@ -0,0 +1,32 @@
+/**
+ * CallbackEvent.java
+ */
+package edu.cnm.deepdive.craps;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning an invocation of one of the
+ * {@link StateMachine.Playable}, {@link StateMachine.Continuable}, or
+ * {@link StateMachine.Display} callbacks by {@link StateMachine#play()}.
+ *
+ * @author Nicholas Bennett
+ */
+@Name("edu.cnm.deepdive.craps.Callback")
+@Label("Callback")
+@Category("Craps")
+@Description("Invocation of a state machine callback")
+final class CallbackEvent extends jdk.jfr.Event {
+
+  static final String PLAYABLE = "Playable";
+  static final String CONTINUABLE = "Continuable";
+  static final String DISPLAY = "Display";
+
+  @Label("Callback")
+  @Description("Callback interface invoked")
+  String callback;
+
+}
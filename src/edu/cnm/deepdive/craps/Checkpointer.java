@@ -0,0 +1,92 @@
+/**
+ * Checkpointer.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes periodic checkpoints of a long-running computation to a file, on a
+ * background thread, so that the computation never waits for I/O. The
+ * computation checks {@link #isDue()} at convenient points, and, if a
+ * checkpoint is due, serializes its state to a {@code byte[]} and passes it
+ * to {@link #write(byte[])}. Each checkpoint is written to a temporary file,
+ * which then atomically replaces the previous checkpoint; a crash during a
+ * write therefore leaves the previous checkpoint intact.
+ *
+ * @author Nicholas Bennett
+ */
+final class Checkpointer implements AutoCloseable {
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final Path file;
+  private final Path temp;
+  private final long interval;
+  private final AtomicLong deadline;
+  private final ExecutorService writer = Executors.newSingleThreadExecutor((task) -> {
+    Thread thread = new Thread(task, "checkpoint-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile IOException failure;
+
+  Checkpointer(Path file, long intervalNanos) {
+    this.file = file;
+    temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+    interval = intervalNanos;
+    deadline = new AtomicLong(System.nanoTime() + intervalNanos);
+  }
+
+  /**
+   * Returns {@code true} (to exactly one caller, if several threads check at
+   * once) if the checkpoint interval has elapsed since the last checkpoint.
+   */
+  boolean isDue() {
+    long now = System.nanoTime();
+    long due = deadline.get();
+    return now - due >= 0 && deadline.compareAndSet(due, now + interval);
+  }
+
+  /**
+   * Queues the specified checkpoint for writing; checkpoints are written in
+   * the order queued.
+   */
+  void write(byte[] checkpoint) {
+    writer.execute(() -> {
+      try {
+        Files.write(temp, checkpoint);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException ex) {
+        failure = ex;
+      }
+    });
+  }
+
+  /**
+   * Waits for all queued checkpoints to be written.
+   *
+   * @throws IOException    If any checkpoint could not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    writer.shutdown();
+    try {
+      writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+}
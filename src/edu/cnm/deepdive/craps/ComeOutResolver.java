@@ -0,0 +1,236 @@
+/**
+ * ComeOutResolver.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.util.Arrays;
+
+/**
+ * This class classifies blocks of pre-generated come-out rolls (e.g. filled by
+ * {@link DiceSource#nextRolls(byte[], int, int)}), accumulating the number of
+ * rolls that win, lose, push, and establish each point under a
+ * {@link RuleTable}. Since a come-out outcome is a pure function of the roll,
+ * a block can be classified by counting its rolls, without branching on each
+ * one.
+ * <p>
+ * When the {@code jdk.incubator.vector} module is present (i.e. the JVM was
+ * started with {@code --add-modules jdk.incubator.vector}), and the come-out
+ * rules depend only on the sum of the dice (as is the case for all of the
+ * variants in {@link RuleTable}), the rolls are counted by sum in SIMD lanes
+ * (see {@link VectorSumCounter}). Otherwise, a scalar loop counts the rolls by
+ * roll code. Both paths produce identical tallies.
+ * <p>
+ * An instance accumulates tallies over any number of invocations of
+ * {@link #resolve(byte[], int, int)}, until {@link #reset()}; it must be used
+ * by only one thread at a time.
+ *
+ * @author Nicholas Bennett
+ */
+public class ComeOutResolver {
+
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+  private static final boolean VECTOR_AVAILABLE =
+      ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+  private static final int DEFAULT_BLOCKS = 10_000;
+  private static final String FORMAT =
+      "rolls = %d; wins = %d; losses = %d; pushes = %d; points = %s";
+
+  private final RuleTable rules;
+  private final boolean vectorized;
+  private final byte[] sumOutcomes = new byte[RuleTable.MAX_SUM + 1];
+  private final long[] counts;
+
+  /**
+   * Initializes the resolver for the specified rules, using the Vector API if
+   * possible.
+   *
+   * @param rules   Rules of the variant.
+   */
+  public ComeOutResolver(RuleTable rules) {
+    this(rules, true);
+  }
+
+  /**
+   * Initializes the resolver for the specified rules, using the Vector API
+   * only if requested and possible.
+   *
+   * @param rules       Rules of the variant.
+   * @param vectorize   Flag requesting the Vector API; if {@code false}, the
+   *                    scalar loop is used regardless.
+   */
+  public ComeOutResolver(RuleTable rules, boolean vectorize) {
+    this.rules = rules;
+    boolean bySum = true;
+    Arrays.fill(sumOutcomes, (byte) RuleTable.NONE);
+    for (int roll = 0; roll < Rolls.COMBINATIONS; roll++) {
+      int sum = Rolls.sum(roll);
+      int outcome = rules.comeOut(roll);
+      if (sumOutcomes[sum] == RuleTable.NONE) {
+        sumOutcomes[sum] = (byte) outcome;
+      } else if (sumOutcomes[sum] != outcome) {
+        bySum = false;
+      }
+    }
+    vectorized = vectorize && bySum && VECTOR_AVAILABLE;
+    counts = new long[vectorized ? RuleTable.MAX_SUM + 1 : Rolls.COMBINATIONS];
+  }
+
+  /**
+   * Classifies the specified number of random come-out rolls with each of
+   * the scalar and vector paths (if available), in blocks of
+   * {@link RollBuffer#BLOCK_SIZE}, prints the tallies, and checks that they
+   * agree. For timings, see the {@code ComeOutBenchmark} in the benchmarks
+   * module.
+   *
+   * @param args  Command-line arguments: number of blocks (optional, default
+   *              10,000), and seed (optional).
+   */
+  public static void main(String[] args) {
+    int blocks = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_BLOCKS;
+    DiceSource dice = (args.length > 1)
+        ? DiceSource.bulk(Long.parseLong(args[1]))
+        : DiceSource.bulk();
+    byte[] rolls = new byte[blocks * RollBuffer.BLOCK_SIZE];
+    dice.nextRolls(rolls, 0, rolls.length);
+    ComeOutResolver scalar = new ComeOutResolver(RuleTable.PASS_LINE, false);
+    ComeOutResolver vector = new ComeOutResolver(RuleTable.PASS_LINE);
+    for (ComeOutResolver resolver : new ComeOutResolver[] {scalar, vector}) {
+      for (int offset = 0; offset < rolls.length; offset += RollBuffer.BLOCK_SIZE) {
+        resolver.resolve(rolls, offset, RollBuffer.BLOCK_SIZE);
+      }
+      System.out.printf("%s: %s%n", resolver.isVectorized() ? "vector" : "scalar", resolver);
+    }
+    if (!Arrays.equals(scalar.getPointHistogram(), vector.getPointHistogram())
+        || scalar.getWins() != vector.getWins()
+        || scalar.getLosses() != vector.getLosses()
+        || scalar.getPushes() != vector.getPushes()) {
+      System.out.println("Scalar and vector tallies differ.");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the {@code jdk.incubator.vector} module is present
+   * in this JVM.
+   *
+   * @return    availability of the Vector API.
+   */
+  public static boolean isVectorAvailable() {
+    return VECTOR_AVAILABLE;
+  }
+
+  /**
+   * Returns {@code true} if this resolver counts rolls in SIMD lanes.
+   *
+   * @return    use of the Vector API.
+   */
+  public boolean isVectorized() {
+    return vectorized;
+  }
+
+  /**
+   * Classifies the specified range of come-out roll codes, adding them to the
+   * tallies of this resolver.
+   *
+   * @param rolls     Roll codes (see {@link Rolls}).
+   * @param offset    Index of first roll.
+   * @param length    Number of rolls.
+   */
+  public void resolve(byte[] rolls, int offset, int length) {
+    if (vectorized) {
+      VectorSumCounter.count(rolls, offset, length, counts);
+    } else {
+      for (int i = offset; i < offset + length; i++) {
+        counts[rolls[i]]++;
+      }
+    }
+  }
+
+  /**
+   * Discards the tallies accumulated so far.
+   */
+  public void reset() {
+    Arrays.fill(counts, 0);
+  }
+
+  /**
+   * Returns the number of rolls classified.
+   *
+   * @return    rolls
+   */
+  public long getRolls() {
+    long rolls = 0;
+    for (long count : counts) {
+      rolls += count;
+    }
+    return rolls;
+  }
+
+  /**
+   * Returns the number of come-out rolls that won.
+   *
+   * @return    wins
+   */
+  public long getWins() {
+    return tally(RuleTable.WIN);
+  }
+
+  /**
+   * Returns the number of come-out rolls that lost.
+   *
+   * @return    losses
+   */
+  public long getLosses() {
+    return tally(RuleTable.LOSE);
+  }
+
+  /**
+   * Returns the number of come-out rolls that pushed.
+   *
+   * @return    pushes
+   */
+  public long getPushes() {
+    return tally(RuleTable.PUSH);
+  }
+
+  /**
+   * Returns the number of come-out rolls that established each point.
+   * Element {@code p} of the returned array is the count for point {@code p}.
+   *
+   * @return    Histogram of points, indexed by point.
+   */
+  public long[] getPointHistogram() {
+    long[] points = new long[RuleTable.MAX_SUM + 1];
+    for (int i = 0; i < counts.length; i++) {
+      if (outcome(i) == RuleTable.POINT) {
+        points[vectorized ? i : Rolls.sum(i)] += counts[i];
+      }
+    }
+    return points;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(FORMAT, getRolls(), getWins(), getLosses(), getPushes(),
+        Arrays.toString(getPointHistogram()));
+  }
+
+  private long tally(int outcome) {
+    long tally = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (outcome(i) == outcome) {
+        tally += counts[i];
+      }
+    }
+    return tally;
+  }
+
+  /**
+   * Returns the outcome of the sum or roll code (depending on the path) by
+   * which rolls are counted in element {@code i} of {@link #counts}.
+   */
+  private int outcome(int i) {
+    return vectorized ? sumOutcomes[i] : rules.comeOut(i);
+  }
+
+}
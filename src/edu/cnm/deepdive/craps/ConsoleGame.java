@@ -3,11 +3,15 @@
  */
 package edu.cnm.deepdive.craps;
 
+import java.io.PrintWriter;
 import java.util.Arrays;
 
 /**
  * Simple program that presents the functionality of the {@link StateMachine} 
- * class via a console-based UI to play a simple solitaire craps game.  
+ * class via a console-based UI to play a simple solitaire craps game. User
+ * input is obtained from a {@link LineSource}, and output written to a
+ * {@link PrintWriter}, so that the same game may be hosted over a socket or
+ * pipe (see {@link SessionHost}).
  * 
  * @author Nicholas Bennett
  */
@@ -18,6 +22,8 @@ public class ConsoleGame {
   private static final String POINT_PROMPT = "Point = %d. Continue play? ([y]/n) ";
   private static final String SUMMARY = "wins = %d; losses = %d; net = %d; return = %3.2f%%%n";
   
+  private final LineSource input;
+  private final PrintWriter output;
   private boolean firstPlay = true;
   
   /**
@@ -31,13 +37,28 @@ public class ConsoleGame {
    * @param args  Command-line arguments (ignored).
    */
   public static void main(String[] args) {
-    new ConsoleGame().play();
+    new ConsoleGame(System.console()::readLine, new PrintWriter(System.out, true)).play();
   }
 
-  private void play() {
+  /**
+   * Initializes the game with the specified input source and output stream.
+   * 
+   * @param input     Source of user responses.
+   * @param output    Destination of game display and summary.
+   */
+  public ConsoleGame(LineSource input, PrintWriter output) {
+    this.input = input;
+    this.output = output;
+  }
+
+  /**
+   * Plays rounds until the user chooses to stop (or input ends), then writes
+   * the summary of play.
+   */
+  public void play() {
     StateMachine croupier = new StateMachine();
     croupier.setDisplay((roll)-> 
-        System.out.printf(ROLL_DISPLAY, Arrays.toString(roll), roll[0] + roll[1]));
+        output.printf(ROLL_DISPLAY, Arrays.toString(roll), roll[0] + roll[1]));
     croupier.setPlayable((wins, losses) -> {
       boolean proceed = firstPlay || proceed(PLAY_PROMPT, wins, losses, wins - losses);
       firstPlay = false;
@@ -49,14 +70,19 @@ public class ConsoleGame {
     int losses = croupier.getLosses();
     int net = wins - losses;
     float returnRate = (float) net / (wins + losses); 
-    System.out.printf(SUMMARY, wins, losses, net, 100 * returnRate);
+    output.printf(SUMMARY, wins, losses, net, 100 * returnRate);
+    output.flush();
   }
   
-  private static boolean proceed(String format, Object... args) {
+  private boolean proceed(String format, Object... args) {
     char choice;
     do {
-      String input = System.console().readLine(format, args).trim();
-      choice = (input.length() > 0) ? input.toLowerCase().charAt(0) : 'y';
+      String line = input.readLine(format, args);
+      if (line == null) {
+        return false;
+      }
+      line = line.trim();
+      choice = (line.length() > 0) ? line.toLowerCase().charAt(0) : 'y';
     } while (choice != 'y' && choice != 'n');
     return (choice == 'y');
   }
@@ -0,0 +1,233 @@
+/**
+ * DiceSource.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Strategy interface for the source of dice rolls used by
+ * {@link StateMachine} and {@link Simulator}. Rolls are returned in the
+ * compact encoding defined by {@link Rolls}.
+ * <p>
+ * An instance is not, in general, safe for use by multiple threads. Instead,
+ * each worker thread should obtain its own instance via {@link #split()}; when
+ * the source is deterministically seeded, a fixed sequence of
+ * {@link #split()} invocations yields a fixed set of independent, reproducible
+ * streams, without any contention on a shared seed.
+ *
+ * @author Nicholas Bennett
+ */
+public interface DiceSource {
+
+  /**
+   * Name by which {@link #of(String)} and {@link #of(String, long)} select a
+   * {@link #bulk()} source.
+   */
+  String BULK_ALGORITHM = "Bulk";
+
+  /**
+   * Name by which {@link #of(String)} and {@link #of(String, long)} select a
+   * {@link #splittable()} source (the default source of {@link StateMachine}
+   * and {@link Simulator}).
+   */
+  String SPLITTABLE_ALGORITHM = "SplittableRandom";
+
+  /**
+   * Returns the value of a single die, in the range {@code [1, 6]}.
+   *
+   * @return    Die value.
+   */
+  int nextDie();
+
+  /**
+   * Returns a roll of two dice, encoded as specified by {@link Rolls}. The
+   * default implementation packs the values of two invocations of
+   * {@link #nextDie()}.
+   *
+   * @return    Roll code.
+   */
+  default int nextRoll() {
+    int die1 = nextDie();
+    return Rolls.pack(die1, nextDie());
+  }
+
+  /**
+   * Fills the specified range of an array with roll codes (see
+   * {@link Rolls}), which are the same as those that would have been returned
+   * by {@code length} successive invocations of {@link #nextRoll()}. The
+   * default implementation does exactly that; sources that can generate rolls
+   * more cheaply in bulk (see {@link #bulk(long)}) override it.
+   *
+   * @param rolls     Destination of roll codes.
+   * @param offset    Index of first element of {@code rolls} to fill.
+   * @param length    Number of rolls.
+   */
+  default void nextRolls(byte[] rolls, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      rolls[i] = (byte) nextRoll();
+    }
+  }
+
+  /**
+   * Returns a new source, statistically independent of this one, for use by
+   * another thread. If this source is deterministically seeded, then so is
+   * the returned source.
+   *
+   * @return    New source.
+   * @throws UnsupportedOperationException    If the underlying generator
+   *                                          cannot be split.
+   */
+  DiceSource split();
+
+  /**
+   * Writes the complete state of this source, so that it may later be
+   * restored by {@link #restoreState(DataInput)}. Only the sources returned by
+   * {@link #splittable()} and {@link #splittable(long)} support checkpointing;
+   * the default implementation throws {@link UnsupportedOperationException}.
+   *
+   * @param out   Destination of state.
+   * @throws IOException    If the state cannot be written.
+   * @throws UnsupportedOperationException    If the state of this source
+   *                                          cannot be saved.
+   */
+  default void saveState(DataOutput out) throws IOException {
+    throw new UnsupportedOperationException(
+        String.format("%s cannot be checkpointed.", getClass().getName()));
+  }
+
+  /**
+   * Restores the state of this source from data written by
+   * {@link #saveState(DataOutput)} on a source of the same kind; subsequent
+   * rolls and splits are then identical to those of the saved source. The
+   * default implementation throws {@link UnsupportedOperationException}.
+   *
+   * @param in    Source of state.
+   * @throws IOException    If the state cannot be read, or is invalid.
+   * @throws UnsupportedOperationException    If the state of this source
+   *                                          cannot be restored.
+   */
+  default void restoreState(DataInput in) throws IOException {
+    throw new UnsupportedOperationException(
+        String.format("%s cannot be checkpointed.", getClass().getName()));
+  }
+
+  /**
+   * Returns an unseeded source using the algorithm of
+   * {@link SplittableRandom}. The returned source supports checkpointing.
+   *
+   * @return    New source.
+   */
+  static DiceSource splittable() {
+    return SplitMixDice.unseeded();
+  }
+
+  /**
+   * Returns a deterministically seeded source, producing the same rolls and
+   * splits as a {@link SplittableRandom} with the specified seed. The
+   * returned source supports checkpointing.
+   *
+   * @param seed    Seed value.
+   * @return        New source.
+   */
+  static DiceSource splittable(long seed) {
+    return new SplitMixDice(seed);
+  }
+
+  /**
+   * Returns an unseeded source that extracts 11 rolls from each 64-bit random
+   * word. The returned source supports checkpointing.
+   *
+   * @return    New source.
+   */
+  static DiceSource bulk() {
+    return BulkDice.unseeded();
+  }
+
+  /**
+   * Returns a deterministically seeded source that extracts 11 rolls from
+   * each 64-bit random word, with exactly uniform rolls; this is considerably
+   * cheaper per roll than a bounded draw for each roll, especially when
+   * rolls are obtained in blocks via {@link #nextRolls(byte[], int, int)}.
+   * The returned source supports checkpointing.
+   *
+   * @param seed    Seed value.
+   * @return        New source.
+   */
+  static DiceSource bulk(long seed) {
+    return new BulkDice(seed);
+  }
+
+  /**
+   * Returns a source backed by {@link java.util.concurrent.ThreadLocalRandom}.
+   * This source may be shared freely between threads, but it cannot be
+   * seeded, and {@link #split()} simply returns the same instance.
+   *
+   * @return    Shared source.
+   */
+  static DiceSource threadLocal() {
+    return ThreadLocalDiceSource.INSTANCE;
+  }
+
+  /**
+   * Returns an unseeded source backed by a new instance of the named
+   * {@link RandomGenerator} algorithm (e.g. {@code "L64X128MixRandom"}), a
+   * {@link #bulk()} source, if the name is {@value #BULK_ALGORITHM}, or a
+   * {@link #splittable()} source, if the name is
+   * {@value #SPLITTABLE_ALGORITHM}.
+   *
+   * @param algorithm   Name of algorithm.
+   * @return            New source.
+   * @throws IllegalArgumentException   If the named algorithm is not
+   *                                    available.
+   */
+  static DiceSource of(String algorithm) {
+    if (algorithm.equals(SPLITTABLE_ALGORITHM)) {
+      return splittable();
+    }
+    return algorithm.equals(BULK_ALGORITHM)
+        ? bulk()
+        : new GeneratorDiceSource(RandomGeneratorFactory.of(algorithm).create());
+  }
+
+  /**
+   * Returns a deterministically seeded source backed by a new instance of the
+   * named {@link RandomGenerator} algorithm (e.g. {@code "L64X128MixRandom"}),
+   * a {@link #bulk(long)} source, if the name is {@value #BULK_ALGORITHM}, or a
+   * {@link #splittable(long)} source, if the name is
+   * {@value #SPLITTABLE_ALGORITHM}.
+   *
+   * @param algorithm   Name of algorithm.
+   * @param seed        Seed value.
+   * @return            New source.
+   * @throws IllegalArgumentException   If the named algorithm is not
+   *                                    available.
+   */
+  static DiceSource of(String algorithm, long seed) {
+    if (algorithm.equals(SPLITTABLE_ALGORITHM)) {
+      return splittable(seed);
+    }
+    return algorithm.equals(BULK_ALGORITHM)
+        ? bulk(seed)
+        : new GeneratorDiceSource(RandomGeneratorFactory.of(algorithm).create(seed));
+  }
+
+  /**
+   * Returns a source backed by the specified generator. The returned source
+   * supports {@link #split()} only if {@code rng} is a
+   * {@link RandomGenerator.SplittableGenerator} or a
+   * {@link RandomGenerator.JumpableGenerator}.
+   *
+   * @param rng   Generator.
+   * @return      New source.
+   */
+  static DiceSource of(RandomGenerator rng) {
+    return new GeneratorDiceSource(rng);
+  }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * EventLog.java
+ */
+package edu.cnm.deepdive.craps;
+
+/**
+ * Constants of the compact binary event log format written by
+ * {@link EventLogWriter} and read by {@link EventLogReader}.
+ * <p>
+ * A log begins with a 5-byte header: the ASCII characters {@code CRLG},
+ * followed by the format {@link #VERSION}. The remainder is a sequence of
+ * records, each of which starts with a single tag byte:
+ * <ul>
+ * <li>{@code 0x00}&ndash;{@code 0x23}: a roll; the tag is the roll code (see
+ * {@link Rolls}), and there is no payload. A roll thus occupies one
+ * byte.</li>
+ * <li>{@code 0x40 | outcome}: the end of a round, with its outcome (one of
+ * the {@link RuleTable} outcome constants); no payload.</li>
+ * <li>{@code 0x48 | ordinal}: a transition to the
+ * {@link StateMachine.PlayState} with the specified ordinal; no
+ * payload.</li>
+ * <li>{@code 0x50}: a settlement, followed by the net amount won or lost as a
+ * zigzag-encoded varint.</li>
+ * <li>{@code 0x58}: the start of a session, followed by the session ID and
+ * the seed of its {@link DiceSource}, each as an unsigned varint, and then by
+ * the name of the dice algorithm (as accepted by
+ * {@link DiceSource#of(String, long)}) and the name of the {@link RuleTable},
+ * each as a varint length and that many bytes of UTF-8, of at most
+ * {@link #MAX_NAME_LENGTH} bytes. (In version 1 of the format, the names are
+ * absent, and are implicitly {@link #DEFAULT_ALGORITHM} and
+ * {@link RuleTable#PASS_LINE}.)</li>
+ * </ul>
+ * Varints are little-endian base-128, with the high bit of each byte set on
+ * all but the last byte; zigzag encoding maps signed values of small
+ * magnitude to small unsigned values. A typical round of play therefore
+ * occupies 4 or 5 bytes.
+ *
+ * @author Nicholas Bennett
+ */
+public final class EventLog {
+
+  /** Format version written after the magic number. */
+  public static final byte VERSION = 2;
+  /** Maximum length (in UTF-8 bytes) of a name in a session-start record. */
+  public static final int MAX_NAME_LENGTH = 127;
+  /** Dice algorithm of a session recorded without one. */
+  public static final String DEFAULT_ALGORITHM = DiceSource.SPLITTABLE_ALGORITHM;
+  /** Kind of a roll record. */
+  public static final int ROLL = 0x00;
+  /** Kind of an end-of-round record. */
+  public static final int ROUND_END = 0x40;
+  /** Kind of a state-transition record. */
+  public static final int STATE = 0x48;
+  /** Kind of a settlement record. */
+  public static final int SETTLEMENT = 0x50;
+  /** Kind of a session-start record. */
+  public static final int SESSION = 0x58;
+  /** Value returned by {@link EventLogReader#next()} at the end of the log. */
+  public static final int END = -1;
+
+  static final byte[] MAGIC = {'C', 'R', 'L', 'G'};
+  static final byte FIRST_VERSION = 1;
+  static final int HEADER_LENGTH = MAGIC.length + 1;
+  static final int KIND_MASK = 0xF8;
+  static final int VALUE_MASK = 0x07;
+  static final int MAX_RECORD_LENGTH = 1 + 2 * 10 + 2 * (1 + MAX_NAME_LENGTH);
+
+  private EventLog() {
+    // Constants only.
+  }
+
+  static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+}
@@ -0,0 +1,294 @@
+/**
+ * EventLogReader.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads, one record at a time, an event log written by
+ * {@link EventLogWriter}. Each invocation of {@link #next()} decodes a record
+ * and returns its kind; the contents of the record are then available from
+ * the corresponding accessor. The file is read through a direct
+ * {@link ByteBuffer}, refilled in large blocks, so a log of hundreds of
+ * millions of rolls can be scanned at close to the speed of the storage
+ * device. Logs in the current and the first version of the format are
+ * accepted.
+ *
+ * @author Nicholas Bennett
+ */
+public class EventLogReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final String SUMMARY_FORMAT =
+      "sessions = %d; rolls = %d; rounds = %d; wins = %d; losses = %d; pushes = %d; "
+      + "settled = %d%n";
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final byte[] name = new byte[EventLog.MAX_NAME_LENGTH];
+  private byte version;
+  private int roll = -1;
+  private int outcome = RuleTable.NONE;
+  private StateMachine.PlayState state;
+  private long amount;
+  private long sessionId;
+  private long seed;
+  private String algorithm = EventLog.DEFAULT_ALGORITHM;
+  private String rules = RuleTable.PASS_LINE.getName();
+
+  /**
+   * Prints a summary of the events in a log.
+   *
+   * @param args  Command-line arguments: location of log file.
+   * @throws IOException  If the log cannot be read.
+   */
+  public static void main(String[] args) throws IOException {
+    long sessions = 0;
+    long rolls = 0;
+    long[] outcomes = new long[RuleTable.PUSH + 1];
+    long settled = 0;
+    try (EventLogReader reader = new EventLogReader(Paths.get(args[0]))) {
+      for (int kind = reader.next(); kind != EventLog.END; kind = reader.next()) {
+        switch (kind) {
+          case EventLog.ROLL:
+            rolls++;
+            break;
+          case EventLog.ROUND_END:
+            outcomes[reader.getOutcome()]++;
+            break;
+          case EventLog.SETTLEMENT:
+            settled += reader.getAmount();
+            break;
+          case EventLog.SESSION:
+            sessions++;
+            break;
+          default:
+            // State transitions are not summarized.
+        }
+      }
+    }
+    long wins = outcomes[RuleTable.WIN];
+    long losses = outcomes[RuleTable.LOSE];
+    long pushes = outcomes[RuleTable.PUSH];
+    System.out.printf(SUMMARY_FORMAT,
+        sessions, rolls, wins + losses + pushes, wins, losses, pushes, settled);
+  }
+
+  /**
+   * Opens the specified log for reading, and checks its header.
+   *
+   * @param path    Location of log file.
+   * @throws IOException    If the file cannot be opened, or is not an event
+   *                        log.
+   */
+  public EventLogReader(Path path) throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      buffer.flip();
+      boolean valid = fill(EventLog.HEADER_LENGTH);
+      for (int i = 0; valid && i < EventLog.MAGIC.length; i++) {
+        valid = (buffer.get() == EventLog.MAGIC[i]);
+      }
+      version = valid ? buffer.get() : 0;
+      if (version != EventLog.VERSION && version != EventLog.FIRST_VERSION) {
+        throw new IOException(String.format("%s is not a compatible event log.", path));
+      }
+    } catch (IOException | RuntimeException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Decodes the next record, and returns its kind.
+   *
+   * @return    One of {@link EventLog#ROLL}, {@link EventLog#ROUND_END},
+   *            {@link EventLog#STATE}, {@link EventLog#SETTLEMENT},
+   *            {@link EventLog#SESSION}, or {@link EventLog#END} if there
+   *            are no more records.
+   * @throws IOException    If the log cannot be read, or is corrupt or
+   *                        truncated.
+   */
+  public int next() throws IOException {
+    if (!buffer.hasRemaining() && !fill(1)) {
+      return EventLog.END;
+    }
+    int tag = buffer.get() & 0xFF;
+    if (tag < Rolls.COMBINATIONS) {
+      roll = tag;
+      return EventLog.ROLL;
+    }
+    int kind = tag & EventLog.KIND_MASK;
+    int value = tag & EventLog.VALUE_MASK;
+    switch (kind) {
+      case EventLog.ROUND_END:
+        if (value > RuleTable.PUSH) {
+          break;
+        }
+        outcome = value;
+        return kind;
+      case EventLog.STATE:
+        if (value >= StateMachine.PlayState.values().length) {
+          break;
+        }
+        state = StateMachine.PlayState.values()[value];
+        return kind;
+      case EventLog.SETTLEMENT:
+        if (value != 0) {
+          break;
+        }
+        amount = EventLog.unzigzag(getVarint());
+        return kind;
+      case EventLog.SESSION:
+        if (value != 0) {
+          break;
+        }
+        sessionId = getVarint();
+        seed = getVarint();
+        if (version != EventLog.FIRST_VERSION) {
+          algorithm = getName();
+          rules = getName();
+        }
+        return kind;
+      default:
+        // Fall through to corrupt tag.
+    }
+    throw new IOException(String.format("Corrupt event log: invalid tag 0x%02x.", tag));
+  }
+
+  /**
+   * Returns the roll code (see {@link Rolls}) of the most recent
+   * {@link EventLog#ROLL} record.
+   *
+   * @return    roll code
+   */
+  public int getRoll() {
+    return roll;
+  }
+
+  /**
+   * Returns the outcome of the most recent {@link EventLog#ROUND_END} record.
+   *
+   * @return    outcome
+   */
+  public int getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * Returns the state of the most recent {@link EventLog#STATE} record.
+   *
+   * @return    state
+   */
+  public StateMachine.PlayState getState() {
+    return state;
+  }
+
+  /**
+   * Returns the amount of the most recent {@link EventLog#SETTLEMENT} record.
+   *
+   * @return    net amount won (positive) or lost (negative)
+   */
+  public long getAmount() {
+    return amount;
+  }
+
+  /**
+   * Returns the session ID of the most recent {@link EventLog#SESSION}
+   * record.
+   *
+   * @return    session ID
+   */
+  public long getSessionId() {
+    return sessionId;
+  }
+
+  /**
+   * Returns the seed of the most recent {@link EventLog#SESSION} record.
+   *
+   * @return    seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns the name of the dice algorithm of the most recent
+   * {@link EventLog#SESSION} record ({@link EventLog#DEFAULT_ALGORITHM} in a
+   * log of the first version).
+   *
+   * @return    algorithm
+   */
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  /**
+   * Returns the name of the {@link RuleTable} of the most recent
+   * {@link EventLog#SESSION} record (that of {@link RuleTable#PASS_LINE} in a
+   * log of the first version).
+   *
+   * @return    name of rules
+   */
+  public String getRulesName() {
+    return rules;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private boolean fill(int length) throws IOException {
+    buffer.compact();
+    try {
+      while (buffer.position() < length) {
+        if (channel.read(buffer) < 0) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      buffer.flip();
+    }
+  }
+
+  private long getVarint() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < Long.SIZE; shift += 7) {
+      if (!buffer.hasRemaining() && !fill(1)) {
+        throw new EOFException("Truncated event log.");
+      }
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("Corrupt event log: varint too long.");
+  }
+
+  private String getName() throws IOException {
+    long length = getVarint();
+    if (length > EventLog.MAX_NAME_LENGTH) {
+      throw new IOException("Corrupt event log: name too long.");
+    }
+    for (int i = 0; i < length; i++) {
+      if (!buffer.hasRemaining() && !fill(1)) {
+        throw new EOFException("Truncated event log.");
+      }
+      name[i] = buffer.get();
+    }
+    return new String(name, 0, (int) length, StandardCharsets.UTF_8);
+  }
+
+}
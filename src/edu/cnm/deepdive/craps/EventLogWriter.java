@@ -0,0 +1,249 @@
+/**
+ * EventLogWriter.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class appends events of play to a binary log file, in the compact
+ * format described in {@link EventLog}. Records are encoded directly into a
+ * large direct {@link ByteBuffer}, which is written to a {@link FileChannel}
+ * only when it fills, or when the log is flushed or closed; recording a roll
+ * is thus a single byte store in the common case, and the cost of I/O is
+ * amortized over hundreds of thousands of events. This lets a log keep up
+ * with {@link Simulator#run(long)}.
+ * <p>
+ * Opening an existing log appends to it (after checking its header), so a log
+ * may accumulate any number of sessions. Events still buffered are lost if
+ * the process terminates without the log being flushed or closed.
+ * <p>
+ * The recording methods do not throw checked exceptions, so that they may be
+ * invoked from callbacks; an I/O failure is reported as an
+ * {@link UncheckedIOException}. An instance of this class is not
+ * thread-safe.
+ *
+ * @author Nicholas Bennett
+ */
+public class EventLogWriter implements Closeable, Flushable {
+
+  /** Default size (in bytes) of the write buffer. */
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+
+  /**
+   * Opens the specified log for appending, with a buffer of the default size,
+   * creating it if it does not exist.
+   *
+   * @param path    Location of log file.
+   * @throws IOException    If the file cannot be opened, or exists but is
+   *                        not an event log.
+   */
+  public EventLogWriter(Path path) throws IOException {
+    this(path, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Opens the specified log for appending, with a buffer of the specified
+   * size, creating it if it does not exist.
+   *
+   * @param path          Location of log file.
+   * @param bufferSize    Size (in bytes) of write buffer.
+   * @throws IOException    If the file cannot be opened, or exists but is
+   *                        not an event log.
+   * @throws IllegalArgumentException   If {@code bufferSize} is too small to
+   *                                    hold the largest record.
+   */
+  public EventLogWriter(Path path, int bufferSize) throws IOException {
+    if (bufferSize < EventLog.MAX_RECORD_LENGTH) {
+      throw new IllegalArgumentException("Buffer size is too small.");
+    }
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+      if (channel.size() == 0) {
+        buffer.put(EventLog.MAGIC).put(EventLog.VERSION);
+      } else {
+        ByteBuffer header = ByteBuffer.allocate(EventLog.HEADER_LENGTH);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+          // Keep reading until the header is complete.
+        }
+        if (header.hasRemaining()
+            || !Arrays.equals(header.array(), 0, EventLog.MAGIC.length,
+                EventLog.MAGIC, 0, EventLog.MAGIC.length)
+            || header.get(EventLog.MAGIC.length) != EventLog.VERSION) {
+          throw new IOException(String.format("%s is not a compatible event log.", path));
+        }
+        channel.position(channel.size());
+      }
+    } catch (IOException | RuntimeException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Records a roll.
+   *
+   * @param roll    Roll code (see {@link Rolls}).
+   */
+  public void roll(int roll) {
+    if (!buffer.hasRemaining()) {
+      drain();
+    }
+    buffer.put((byte) roll);
+  }
+
+  /**
+   * Records the specified number of rolls from an array of roll codes.
+   *
+   * @param rolls     Roll codes (see {@link Rolls}).
+   * @param offset    Index of first roll code in {@code rolls}.
+   * @param length    Number of rolls.
+   */
+  public void rolls(byte[] rolls, int offset, int length) {
+    while (length > 0) {
+      if (!buffer.hasRemaining()) {
+        drain();
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.put(rolls, offset, count);
+      offset += count;
+      length -= count;
+    }
+  }
+
+  /**
+   * Records the end of a round.
+   *
+   * @param outcome   Outcome of round (one of the {@link RuleTable} outcome
+   *                  constants).
+   */
+  public void roundEnd(int outcome) {
+    if (!buffer.hasRemaining()) {
+      drain();
+    }
+    buffer.put((byte) (EventLog.ROUND_END | outcome));
+  }
+
+  /**
+   * Records a transition to the specified state.
+   *
+   * @param state   New state.
+   */
+  public void state(StateMachine.PlayState state) {
+    if (!buffer.hasRemaining()) {
+      drain();
+    }
+    buffer.put((byte) (EventLog.STATE | state.ordinal()));
+  }
+
+  /**
+   * Records the settlement of one or more wagers (e.g. the value returned by
+   * {@link Wagers#settle(int)}).
+   *
+   * @param amount    Net amount won (positive) or lost (negative).
+   */
+  public void settlement(long amount) {
+    ensure(EventLog.MAX_RECORD_LENGTH);
+    buffer.put((byte) EventLog.SETTLEMENT);
+    putVarint(EventLog.zigzag(amount));
+  }
+
+  /**
+   * Records the start of a session, with everything needed to regenerate its
+   * rolls: the seed and algorithm of its {@link DiceSource}, and its rules.
+   *
+   * @param id          Session identifier.
+   * @param seed        Seed of the {@link DiceSource} used by the session.
+   * @param algorithm   Name of the dice algorithm, as accepted by
+   *                    {@link DiceSource#of(String, long)}.
+   * @param rules       Rules of the session.
+   * @throws IllegalArgumentException   If either name is longer than
+   *                                    {@link EventLog#MAX_NAME_LENGTH}
+   *                                    bytes of UTF-8.
+   */
+  public void session(long id, long seed, String algorithm, RuleTable rules) {
+    byte[] algorithmName = encodeName(algorithm);
+    byte[] rulesName = encodeName(rules.getName());
+    ensure(EventLog.MAX_RECORD_LENGTH);
+    buffer.put((byte) EventLog.SESSION);
+    putVarint(id);
+    putVarint(seed);
+    putVarint(algorithmName.length);
+    buffer.put(algorithmName);
+    putVarint(rulesName.length);
+    buffer.put(rulesName);
+  }
+
+  /**
+   * Writes all buffered records to the file.
+   *
+   * @throws IOException    If the records cannot be written.
+   */
+  @Override
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Writes all buffered records to the file, and closes it.
+   *
+   * @throws IOException    If the records cannot be written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void ensure(int length) {
+    if (buffer.remaining() < length) {
+      drain();
+    }
+  }
+
+  private void drain() {
+    try {
+      flush();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private static byte[] encodeName(String name) {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > EventLog.MAX_NAME_LENGTH) {
+      throw new IllegalArgumentException(String.format("Name is too long: %s.", name));
+    }
+    return bytes;
+  }
+
+  private void putVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+}
@@ -0,0 +1,387 @@
+/**
+ * ExactEvaluator.java
+ */
+package edu.cnm.deepdive.craps;
+
+/**
+ * This class computes exact line bet statistics, treating a round as a small
+ * Markov chain: the come-out roll either resolves the round or establishes a
+ * point, and each point is resolved by a geometrically distributed number of
+ * subsequent rolls. The transition probabilities are obtained by enumerating
+ * the 36 combinations of two dice in the same {@link RuleTable} consulted by
+ * {@link StateMachine#play()} and {@link Simulator}, so all of the quantities
+ * below are computed in microseconds, without simulation.
+ * <p>
+ * The {@link #compare(SimulationResult)} method cross-checks the output of a
+ * simulation against the exact values.
+ *
+ * @author Nicholas Bennett
+ */
+public class ExactEvaluator {
+
+  private static final int MAX_SUM = 12;
+  private static final double COMBINATIONS = Rolls.COMBINATIONS;
+  private static final long DEFAULT_ROUNDS = 100_000_000L;
+  private static final String EXACT_FORMAT =
+      "P(win) = %.8f; P(loss) = %.8f; return = %3.6f%%; rolls/round = %.6f%n";
+
+  private final double[] pointProbability = new double[MAX_SUM + 1];
+  private final double[] winProbability = new double[MAX_SUM + 1];
+  private final double[] lossProbability = new double[MAX_SUM + 1];
+  private final double[] pushProbability = new double[MAX_SUM + 1];
+  private double comeOutWin;
+  private double comeOutLoss;
+  private double comeOutPush;
+
+  /**
+   * Prints the exact pass line statistics and, unless the number of rounds is
+   * zero, cross-checks the result of a parallel {@link Simulator} run against
+   * them.
+   *
+   * @param args  Command-line arguments: number of rounds to simulate
+   *              (optional, default 100,000,000), and seed (optional).
+   */
+  public static void main(String[] args) {
+    ExactEvaluator evaluator = new ExactEvaluator();
+    System.out.printf(EXACT_FORMAT, evaluator.getWinProbability(),
+        evaluator.getLossProbability(), 100 * evaluator.getExpectedReturn(),
+        evaluator.getExpectedRolls());
+    long rounds = (args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_ROUNDS;
+    if (rounds > 0) {
+      Simulator simulator =
+          (args.length > 1) ? new Simulator(Long.parseLong(args[1])) : new Simulator();
+      SimulationResult result = simulator.runParallel(rounds);
+      System.out.println(result);
+      System.out.println(evaluator.compare(result));
+    }
+  }
+
+  /**
+   * Initializes the evaluator for the standard pass line rules.
+   */
+  public ExactEvaluator() {
+    this(RuleTable.PASS_LINE);
+  }
+
+  /**
+   * Initializes the evaluator by enumerating the specified rules over all
+   * combinations of two dice.
+   *
+   * @param rules   Rules of the variant to evaluate.
+   */
+  public ExactEvaluator(RuleTable rules) {
+    for (int roll = 0; roll < Rolls.COMBINATIONS; roll++) {
+      switch (rules.comeOut(roll)) {
+        case RuleTable.WIN:
+          comeOutWin += 1 / COMBINATIONS;
+          break;
+        case RuleTable.LOSE:
+          comeOutLoss += 1 / COMBINATIONS;
+          break;
+        case RuleTable.PUSH:
+          comeOutPush += 1 / COMBINATIONS;
+          break;
+        default:
+          pointProbability[Rolls.sum(roll)] += 1 / COMBINATIONS;
+      }
+    }
+    for (int point = 0; point <= MAX_SUM; point++) {
+      if (pointProbability[point] > 0) {
+        for (int roll = 0; roll < Rolls.COMBINATIONS; roll++) {
+          switch (rules.resolve(point, roll)) {
+            case RuleTable.WIN:
+              winProbability[point] += 1 / COMBINATIONS;
+              break;
+            case RuleTable.LOSE:
+              lossProbability[point] += 1 / COMBINATIONS;
+              break;
+            case RuleTable.PUSH:
+              pushProbability[point] += 1 / COMBINATIONS;
+              break;
+            default:
+              // Point not resolved by this roll.
+          }
+        }
+        if (resolution(point) == 0) {
+          throw new IllegalArgumentException(
+              String.format("Point %d can never be resolved.", point));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the probability that a round is won.
+   *
+   * @return    probability of win
+   */
+  public double getWinProbability() {
+    double probability = comeOutWin;
+    for (int point = 0; point <= MAX_SUM; point++) {
+      if (pointProbability[point] > 0) {
+        probability += pointProbability[point] * winProbability[point] / resolution(point);
+      }
+    }
+    return probability;
+  }
+
+  /**
+   * Returns the probability that a round is lost.
+   *
+   * @return    probability of loss
+   */
+  public double getLossProbability() {
+    double probability = comeOutLoss;
+    for (int point = 0; point <= MAX_SUM; point++) {
+      if (pointProbability[point] > 0) {
+        probability += pointProbability[point] * lossProbability[point] / resolution(point);
+      }
+    }
+    return probability;
+  }
+
+  /**
+   * Returns the probability that a round is resolved as a push.
+   *
+   * @return    probability of push
+   */
+  public double getPushProbability() {
+    double probability = comeOutPush;
+    for (int point = 0; point <= MAX_SUM; point++) {
+      if (pointProbability[point] > 0) {
+        probability += pointProbability[point] * pushProbability[point] / resolution(point);
+      }
+    }
+    return probability;
+  }
+
+  /**
+   * Returns the expected net return per round of a unit line bet.
+   *
+   * @return    expected return
+   */
+  public double getExpectedReturn() {
+    return getWinProbability() - getLossProbability();
+  }
+
+  /**
+   * Returns the variance of the net return per round of a unit line bet.
+   *
+   * @return    variance of return
+   */
+  public double getReturnVariance() {
+    double mean = getExpectedReturn();
+    return getWinProbability() + getLossProbability() - mean * mean;
+  }
+
+  /**
+   * Returns the expected number of rolls required to resolve a round.
+   *
+   * @return    expected rolls per round
+   */
+  public double getExpectedRolls() {
+    double expected = 1;
+    for (int point = 0; point <= MAX_SUM; point++) {
+      if (pointProbability[point] > 0) {
+        expected += pointProbability[point] / resolution(point);
+      }
+    }
+    return expected;
+  }
+
+  /**
+   * Returns the variance of the number of rolls required to resolve a round.
+   *
+   * @return    variance of rolls per round
+   */
+  public double getRollsVariance() {
+    double secondMoment = 1;
+    for (int point = 0; point <= MAX_SUM; point++) {
+      if (pointProbability[point] > 0) {
+        double resolution = resolution(point);
+        double first = 1 / resolution;
+        double second = (2 - resolution) / (resolution * resolution);
+        secondMoment += pointProbability[point] * (2 * first + second);
+      }
+    }
+    double mean = getExpectedRolls();
+    return secondMoment - mean * mean;
+  }
+
+  /**
+   * Returns the probability that a round is resolved in exactly the specified
+   * number of rolls.
+   *
+   * @param rolls   Number of rolls, including the come-out roll.
+   * @return        Probability.
+   */
+  public double getRollsProbability(int rolls) {
+    if (rolls < 1) {
+      return 0;
+    }
+    if (rolls == 1) {
+      return comeOutWin + comeOutLoss + comeOutPush;
+    }
+    double probability = 0;
+    for (int point = 0; point <= MAX_SUM; point++) {
+      if (pointProbability[point] > 0) {
+        double resolution = resolution(point);
+        probability +=
+            pointProbability[point] * Math.pow(1 - resolution, rolls - 2) * resolution;
+      }
+    }
+    return probability;
+  }
+
+  /**
+   * Returns the probability that a round is resolved with the specified
+   * outcome in exactly the specified number of rolls; summing this over the
+   * outcomes gives {@link #getRollsProbability(int)}.
+   *
+   * @param outcome   Outcome of round: one of {@link RuleTable#WIN},
+   *                  {@link RuleTable#LOSE}, or {@link RuleTable#PUSH}.
+   * @param rolls     Number of rolls, including the come-out roll.
+   * @return          Probability.
+   */
+  public double getProbability(int outcome, int rolls) {
+    double comeOut;
+    double[] pointPhase;
+    if (outcome == RuleTable.WIN) {
+      comeOut = comeOutWin;
+      pointPhase = winProbability;
+    } else if (outcome == RuleTable.LOSE) {
+      comeOut = comeOutLoss;
+      pointPhase = lossProbability;
+    } else if (outcome == RuleTable.PUSH) {
+      comeOut = comeOutPush;
+      pointPhase = pushProbability;
+    } else {
+      return 0;
+    }
+    if (rolls < 1) {
+      return 0;
+    }
+    if (rolls == 1) {
+      return comeOut;
+    }
+    double probability = 0;
+    for (int point = 0; point <= MAX_SUM; point++) {
+      if (pointProbability[point] > 0) {
+        probability += pointProbability[point]
+            * Math.pow(1 - resolution(point), rolls - 2) * pointPhase[point];
+      }
+    }
+    return probability;
+  }
+
+  /**
+   * Returns the probability that the specified point is established, and is
+   * still unresolved after the specified number of rolls.
+   *
+   * @param point   Point.
+   * @param rolls   Number of rolls, including the come-out roll.
+   * @return        Probability.
+   */
+  public double getUnresolvedProbability(int point, int rolls) {
+    if (point < 0 || point > MAX_SUM || pointProbability[point] == 0 || rolls < 1) {
+      return 0;
+    }
+    return pointProbability[point] * Math.pow(1 - resolution(point), rolls - 1);
+  }
+
+  /**
+   * Returns the distribution of the number of rolls required to resolve a
+   * round, for up to the specified number of rolls. Element {@code k} of the
+   * returned array is the probability that a round takes exactly {@code k}
+   * rolls, except for the last element, which is the probability that a round
+   * takes {@code maxRolls} or more rolls. Element 0 is always zero.
+   *
+   * @param maxRolls    Largest number of rolls reported individually.
+   * @return            Probability distribution.
+   */
+  public double[] getRollsDistribution(int maxRolls) {
+    double[] distribution = new double[maxRolls + 1];
+    double remaining = 1;
+    for (int rolls = 1; rolls < maxRolls; rolls++) {
+      distribution[rolls] = getRollsProbability(rolls);
+      remaining -= distribution[rolls];
+    }
+    distribution[maxRolls] = Math.max(remaining, 0);
+    return distribution;
+  }
+
+  /**
+   * Compares the specified simulation result against the exact expected
+   * values, returning the standardized differences for the return and the
+   * number of rolls per round.
+   *
+   * @param result    Simulation result.
+   * @return          Comparison.
+   */
+  public Comparison compare(SimulationResult result) {
+    long rounds = result.getRounds();
+    double returnError = Math.sqrt(getReturnVariance() / rounds);
+    double rollsError = Math.sqrt(getRollsVariance() / rounds);
+    return new Comparison(
+        (result.getReturnRate() - getExpectedReturn()) / returnError,
+        (result.getRollsPerRound() - getExpectedRolls()) / rollsError);
+  }
+
+  private double resolution(int point) {
+    return winProbability[point] + lossProbability[point] + pushProbability[point];
+  }
+
+  /**
+   * Standardized differences (z-scores) between simulated and exact values.
+   * For a correct simulation, each is approximately a standard normal variate.
+   */
+  public static class Comparison {
+
+    private static final String FORMAT = "z(return) = %.3f; z(rolls/round) = %.3f";
+
+    private final double returnScore;
+    private final double rollsScore;
+
+    private Comparison(double returnScore, double rollsScore) {
+      this.returnScore = returnScore;
+      this.rollsScore = rollsScore;
+    }
+
+    /**
+     * Returns the z-score of the simulated return.
+     *
+     * @return    z-score
+     */
+    public double getReturnScore() {
+      return returnScore;
+    }
+
+    /**
+     * Returns the z-score of the simulated mean rolls per round.
+     *
+     * @return    z-score
+     */
+    public double getRollsScore() {
+      return rollsScore;
+    }
+
+    /**
+     * Returns a flag indicating whether both z-scores are within the specified
+     * limit (e.g. 3.29 for a two-sided test at the 0.1% level).
+     *
+     * @param limit   Largest acceptable absolute z-score.
+     * @return        {@code true} if the simulation is consistent with the
+     *                exact values.
+     */
+    public boolean isConsistent(double limit) {
+      return Math.abs(returnScore) <= limit && Math.abs(rollsScore) <= limit;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(FORMAT, returnScore, rollsScore);
+    }
+
+  }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * GeneratorDiceSource.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.JumpableGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+/**
+ * Implementation of {@link DiceSource} backed by a {@link RandomGenerator}.
+ * Each roll is obtained from a single bounded draw over the 36 combinations,
+ * rather than from two draws over the faces of a die.
+ *
+ * @author Nicholas Bennett
+ */
+final class GeneratorDiceSource implements DiceSource {
+
+  private final RandomGenerator rng;
+
+  GeneratorDiceSource(RandomGenerator rng) {
+    this.rng = rng;
+  }
+
+  @Override
+  public int nextDie() {
+    return rng.nextInt(Rolls.FACES) + 1;
+  }
+
+  @Override
+  public int nextRoll() {
+    return rng.nextInt(Rolls.COMBINATIONS);
+  }
+
+  @Override
+  public DiceSource split() {
+    if (rng instanceof SplittableGenerator) {
+      return new GeneratorDiceSource(((SplittableGenerator) rng).split());
+    }
+    if (rng instanceof JumpableGenerator) {
+      return new GeneratorDiceSource(((JumpableGenerator) rng).copyAndJump());
+    }
+    throw new UnsupportedOperationException(
+        String.format("%s cannot be split.", rng.getClass().getName()));
+  }
+
+}
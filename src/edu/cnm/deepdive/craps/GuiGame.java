@@ -3,15 +3,21 @@ package edu.cnm.deepdive.craps;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
-import java.net.URL;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
-import javax.swing.ImageIcon;
+import javax.swing.Icon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import jdk.jfr.FlightRecorder;
 
 /**
  * 
@@ -24,11 +30,22 @@ public class GuiGame
   private static final String LOSSES = "Losses = %d";
   private static final String POINT = "Point = %d";
   private static final String ROLL = "Roll = %d";
+  private static final String FAST_MODE = "Fast";
+  private static final int ANIMATION_FRAMES = 6;
+  private static final int FRAME_DELAY = 150;
   
-  private ImageIcon[] dieFaces;
-  private ImageIcon rollIcon;
-  private ImageIcon haltIcon;
-  private ImageIcon blankIcon;
+  private static final String[] FACE_IMAGES = {
+      "images/1.png", "images/2.png", "images/3.png",
+      "images/4.png", "images/5.png", "images/6.png"
+  };
+  private static final String ROLL_IMAGE = "images/roll.png";
+  private static final String HALT_IMAGE = "images/halt.png";
+  private static final String BLANK_IMAGE = "images/blank.png";
+  
+  private Icon[] dieFaces;
+  private Icon rollIcon;
+  private Icon haltIcon;
+  private Icon blankIcon;
   private JLabel roll1;
   private JLabel roll2;
   private JButton play;
@@ -37,6 +54,8 @@ public class GuiGame
   private JLabel losses;
   private JLabel point;
   private JLabel roll;
+  private JCheckBox fast;
+  private DiceAnimator animator;
   
   private boolean uiSetup = false;
   private boolean playClicked = false;
@@ -49,17 +68,14 @@ public class GuiGame
    * @param args
    */
   public static void main(String[] args) {
+    IconCache.prefetch(BLANK_IMAGE, ROLL_IMAGE, HALT_IMAGE);
+    IconCache.prefetch(FACE_IMAGES);
     GuiGame game = new GuiGame();
     SwingUtilities.invokeLater(() -> game.createAndShowGui());
     game.play();
     System.exit(0);
   }
 
-  private static ImageIcon createImageIcon(String path) {
-    URL imgURL = GuiGame.class.getClassLoader().getResource(path);
-    return new ImageIcon(imgURL);
-  }
-
   private void createAndShowGui() {
     JFrame frame = new JFrame("Simple Time-Wasting Craps Game");
     JPanel dicePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -67,13 +83,13 @@ public class GuiGame
     JPanel textPanel = new JPanel(new GridLayout(1, 4));
     frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     frame.setLayout(new BorderLayout());
-    dieFaces = new ImageIcon[6];
-    for (int i = 0; i < 6; i++) {
-      dieFaces[i] = createImageIcon(String.format("images/%d.png", i + 1));
+    dieFaces = new Icon[FACE_IMAGES.length];
+    for (int i = 0; i < FACE_IMAGES.length; i++) {
+      dieFaces[i] = IconCache.get(FACE_IMAGES[i]);
     }
-    rollIcon = createImageIcon("images/roll.png");
-    haltIcon = createImageIcon("images/halt.png");
-    blankIcon = createImageIcon("images/blank.png");
+    rollIcon = IconCache.get(ROLL_IMAGE);
+    haltIcon = IconCache.get(HALT_IMAGE);
+    blankIcon = IconCache.get(BLANK_IMAGE);
     roll1 = new JLabel(blankIcon);
     roll2 = new JLabel(blankIcon);
     dicePanel.add(roll1);
@@ -89,8 +105,11 @@ public class GuiGame
       disableButtons();
       stopPlay();
     });
+    fast = new JCheckBox(FAST_MODE);
     buttonPanel.add(play);
     buttonPanel.add(stop);
+    buttonPanel.add(fast);
+    animator = new DiceAnimator();
     wins = new JLabel(String.format(WINS, 0));
     losses = new JLabel(String.format(LOSSES, 0));
     point = new JLabel(String.format(POINT, 0));
@@ -114,6 +133,10 @@ public class GuiGame
   }
   
   private synchronized void play() {
+    UserWaitEvent event = FlightRecorder.isInitialized() ? new UserWaitEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
     while (!uiSetup) {
       try {
         wait();
@@ -121,6 +144,11 @@ public class GuiGame
         // Do nothing.
       }
     }
+    if (event != null && event.shouldCommit()) {
+      event.reason = UserWaitEvent.SETUP;
+      event.proceed = true;
+      event.commit();
+    }
     StateMachine croupier = new StateMachine();
     croupier.setDisplay(this);
     croupier.setPlayable(this);
@@ -130,40 +158,18 @@ public class GuiGame
 
   @Override
   public void update(int[] roll) {
-    JLabel rollLabel = this.roll;
-    synchronized (this) {
-      for (int i = 0; i < 6; i ++) {
-        SwingUtilities.invokeLater(new Runnable() {
-  
-          @Override
-          public void run() {
-            roll1.setIcon(dieFaces[rng.nextInt(6)]);
-            roll2.setIcon(dieFaces[rng.nextInt(6)]);
-          }
-      
-        });
-        try {
-          wait(150);
-        } catch (InterruptedException ex) {
-          // do nothing.
-        }
-      }
-    }
-    SwingUtilities.invokeLater(new Runnable() {
-      @Override
-      public void run() {
-        roll1.setIcon(dieFaces[roll[0] - 1]);
-        roll2.setIcon(dieFaces[roll[1] - 1]);
-        rollLabel.setText(String.format(ROLL, roll[0] + roll[1]));
-        rollLabel.setVisible(true);
-      }
-    });
+    update(roll[0], roll[1]);
+  }
+
+  @Override
+  public void update(int die1, int die2) {
+    animator.animate(die1, die2);
   }
 
   @Override
   public boolean continuePlay(int point) {
     JLabel pointLabel = this.point;
-    SwingUtilities.invokeLater(() -> {
+    animator.runWhenIdle(() -> {
       pointLabel.setText(String.format(POINT, point));
       pointLabel.setVisible(true);
     });
@@ -175,7 +181,7 @@ public class GuiGame
     JLabel pointLabel = this.point;
     JLabel winLabel = this.wins;
     JLabel lossLabel = this.losses;
-    SwingUtilities.invokeLater(() -> {
+    animator.runWhenIdle(() -> {
       pointLabel.setVisible(false);
       winLabel.setText(String.format(WINS, wins));
       lossLabel.setText(String.format(LOSSES, losses));
@@ -186,7 +192,11 @@ public class GuiGame
   }
   
   private synchronized boolean getUserResponse() {
-    SwingUtilities.invokeLater(() -> enableButtons());
+    UserWaitEvent event = FlightRecorder.isInitialized() ? new UserWaitEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    animator.runWhenIdle(() -> enableButtons());
     while (!playClicked && !stopClicked) {
       try {
         wait();
@@ -196,6 +206,11 @@ public class GuiGame
     }
     boolean result = playClicked;
     playClicked = false;
+    if (event != null && event.shouldCommit()) {
+      event.reason = UserWaitEvent.RESPONSE;
+      event.proceed = result;
+      event.commit();
+    }
     return result;
   }
   
@@ -219,6 +234,91 @@ public class GuiGame
     notify();
   }
   
+  /**
+   * Animates the dice on the EDT with a single, reused {@link Timer}, rather
+   * than by parking the game thread between frames. {@link #animate(int, int)}
+   * returns immediately, so the state machine continues without waiting; UI
+   * updates that must not appear before the dice come to rest are deferred
+   * with {@link #runWhenIdle(Runnable)}. Frames are drawn from the preloaded
+   * {@code dieFaces} icons; when the "fast" check box is selected, the frames
+   * are skipped, and the final faces are shown at once.
+   */
+  private class DiceAnimator implements ActionListener {
+    
+    private final Timer timer = new Timer(FRAME_DELAY, this);
+    private final List<Runnable> deferred = new ArrayList<>();
+    private final Runnable start = this::start;
+    private volatile int target;
+    private int frame;
+    
+    private DiceAnimator() {
+      timer.setCoalesce(true);
+    }
+    
+    /**
+     * Starts animating towards the specified roll; may be invoked from any
+     * thread. If an animation is already running, it is retargeted.
+     */
+    void animate(int die1, int die2) {
+      target = Rolls.pack(die1, die2);
+      SwingUtilities.invokeLater(start);
+    }
+    
+    /**
+     * Runs the specified task on the EDT as soon as no animation is running;
+     * may be invoked from any thread.
+     */
+    void runWhenIdle(Runnable task) {
+      SwingUtilities.invokeLater(() -> {
+        if (timer.isRunning()) {
+          deferred.add(task);
+        } else {
+          task.run();
+        }
+      });
+    }
+    
+    @Override
+    public void actionPerformed(ActionEvent evt) {
+      if (frame < ANIMATION_FRAMES) {
+        showRandomFaces();
+      } else {
+        timer.stop();
+        finish();
+      }
+    }
+    
+    private void start() {
+      if (fast.isSelected()) {
+        timer.stop();
+        finish();
+      } else {
+        frame = 0;
+        showRandomFaces();
+        timer.restart();
+      }
+    }
+    
+    private void showRandomFaces() {
+      roll1.setIcon(dieFaces[rng.nextInt(6)]);
+      roll2.setIcon(dieFaces[rng.nextInt(6)]);
+      frame++;
+    }
+    
+    private void finish() {
+      int target = this.target;
+      roll1.setIcon(dieFaces[Rolls.die1(target) - 1]);
+      roll2.setIcon(dieFaces[Rolls.die2(target) - 1]);
+      roll.setText(String.format(ROLL, Rolls.sum(target)));
+      roll.setVisible(true);
+      for (Runnable task : deferred) {
+        task.run();
+      }
+      deferred.clear();
+    }
+    
+  }
+  
 }
 
 
@@ -0,0 +1,224 @@
+/**
+ * IconCache.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+import javax.swing.Icon;
+import javax.swing.SwingUtilities;
+
+/**
+ * This class is a process-wide cache of the icons used by {@link GuiGame} and
+ * {@link OldGuiGame}. Requesting an icon never blocks: it returns at once an
+ * {@link Icon} of a fixed, known size, which paints a placeholder outline
+ * until the image has been decoded on a background thread, and then repaints
+ * every component that showed the placeholder. Icons are cached by resource
+ * path and size, so every window (and every game class) shares a single
+ * decoded copy of each image. An image that cannot be decoded is logged once,
+ * and its icon continues to paint the placeholder.
+ * <p>
+ * Images are decoded at the pixel size needed by the default screen device:
+ * on a HiDPI display (e.g. with a 2x scale transform), a 200-point icon is
+ * backed by a 400-pixel image, and painted without further scaling.
+ *
+ * @author Nicholas Bennett
+ */
+public final class IconCache {
+
+  /** Size (in points) of the bundled images. */
+  public static final int DEFAULT_SIZE = 200;
+
+  private static final Color PLACEHOLDER_COLOR = Color.LIGHT_GRAY;
+  private static final int PLACEHOLDER_INSET = 4;
+  private static final Logger LOGGER = Logger.getLogger(IconCache.class.getName());
+
+  private static final Map<String, CachedIcon> CACHE = new ConcurrentHashMap<>();
+  private static final ExecutorService LOADER = Executors.newSingleThreadExecutor((task) -> {
+    Thread thread = new Thread(task, "icon-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private IconCache() {
+    // Static members only.
+  }
+
+  /**
+   * Returns the shared icon for the specified class path resource, at the
+   * default size; decoding is started if it has not been already.
+   *
+   * @param path    Class path resource (e.g. {@code "images/1.png"}).
+   * @return        Icon.
+   * @throws IllegalArgumentException   If the resource does not exist.
+   */
+  public static Icon get(String path) {
+    return get(path, DEFAULT_SIZE);
+  }
+
+  /**
+   * Returns the shared icon for the specified class path resource, scaled to
+   * the specified size; decoding is started if it has not been already.
+   *
+   * @param path    Class path resource (e.g. {@code "images/1.png"}).
+   * @param size    Width and height of icon, in points.
+   * @return        Icon.
+   * @throws IllegalArgumentException   If the resource does not exist.
+   */
+  public static Icon get(String path, int size) {
+    return CACHE.computeIfAbsent(path + '@' + size, (key) -> {
+      URL url = IconCache.class.getClassLoader().getResource(path);
+      if (url == null) {
+        throw new IllegalArgumentException(String.format("No such resource: %s.", path));
+      }
+      return new CachedIcon(url, size, screenScale());
+    });
+  }
+
+  /**
+   * Starts decoding the specified resources, at the default size, without
+   * waiting for them; this may be invoked before any window is created.
+   *
+   * @param paths   Class path resources.
+   */
+  public static void prefetch(String... paths) {
+    for (String path : paths) {
+      get(path);
+    }
+  }
+
+  /**
+   * Returns a future that completes when the specified icon (which must have
+   * been returned by this class) has been decoded, or completes exceptionally
+   * if its image cannot be decoded.
+   *
+   * @param icon    Icon.
+   * @return        {@link CompletableFuture} that completes with the icon.
+   */
+  public static CompletableFuture<Icon> whenLoaded(Icon icon) {
+    return ((CachedIcon) icon).image.thenApply((image) -> icon);
+  }
+
+  private static double screenScale() {
+    if (GraphicsEnvironment.isHeadless()) {
+      return 1;
+    }
+    return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+        .getDefaultConfiguration().getDefaultTransform().getScaleX();
+  }
+
+  private static BufferedImage decode(URL url, int pixels) {
+    try {
+      BufferedImage source = ImageIO.read(url);
+      if (source == null) {
+        throw new IOException(String.format("Unsupported image format: %s.", url));
+      }
+      if (source.getWidth() == pixels && source.getHeight() == pixels) {
+        return source;
+      }
+      BufferedImage scaled = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D graphics = scaled.createGraphics();
+      try {
+        graphics.setRenderingHint(
+            RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        graphics.drawImage(source, 0, 0, pixels, pixels, null);
+      } finally {
+        graphics.dispose();
+      }
+      return scaled;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private static class CachedIcon implements Icon {
+
+    private final int size;
+    private final CompletableFuture<BufferedImage> image;
+    private final Set<Component> waiting = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private CachedIcon(URL url, int size, double scale) {
+      this.size = size;
+      int pixels = (int) Math.ceil(size * scale);
+      image = CompletableFuture.supplyAsync(() -> decode(url, pixels), LOADER);
+      image.whenComplete((result, failure) -> {
+        if (failure != null) {
+          Throwable cause = (failure instanceof CompletionException) ? failure.getCause() : failure;
+          LOGGER.log(Level.WARNING, String.format("Unable to load icon %s.", url), cause);
+        }
+        SwingUtilities.invokeLater(this::repaintWaiting);
+      });
+    }
+
+    @Override
+    public void paintIcon(Component c, Graphics g, int x, int y) {
+      BufferedImage image =
+          this.image.isCompletedExceptionally() ? null : this.image.getNow(null);
+      if (image != null) {
+        Graphics2D graphics = (Graphics2D) g.create();
+        try {
+          graphics.setRenderingHint(
+              RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+          graphics.drawImage(image, x, y, size, size, c);
+        } finally {
+          graphics.dispose();
+        }
+      } else {
+        if (c != null && !this.image.isDone()) {
+          waiting.add(c);
+        }
+        Graphics2D graphics = (Graphics2D) g.create();
+        try {
+          graphics.setColor(PLACEHOLDER_COLOR);
+          graphics.setStroke(new BasicStroke(2));
+          graphics.drawRoundRect(x + PLACEHOLDER_INSET, y + PLACEHOLDER_INSET,
+              size - 2 * PLACEHOLDER_INSET, size - 2 * PLACEHOLDER_INSET,
+              size / 8, size / 8);
+        } finally {
+          graphics.dispose();
+        }
+      }
+    }
+
+    @Override
+    public int getIconWidth() {
+      return size;
+    }
+
+    @Override
+    public int getIconHeight() {
+      return size;
+    }
+
+    private void repaintWaiting() {
+      for (Component component : waiting) {
+        component.repaint();
+      }
+      waiting.clear();
+    }
+
+  }
+
+}
@@ -0,0 +1,28 @@
+/**
+ * LineSource.java
+ */
+package edu.cnm.deepdive.craps;
+
+/**
+ * Source of line-oriented user input for {@link ConsoleGame}. The signature
+ * matches {@link java.io.Console#readLine(String, Object...)}, so that
+ * {@code System.console()::readLine} is a valid implementation; other
+ * implementations read from a socket, a pipe, or a script.
+ *
+ * @author Nicholas Bennett
+ */
+@FunctionalInterface
+public interface LineSource {
+
+  /**
+   * Presents a formatted prompt, then reads a single line of input.
+   *
+   * @param format    Format string of prompt (see
+   *                  {@link java.util.Formatter}).
+   * @param args      Arguments referenced by the format specifiers.
+   * @return          Line read, without any line-termination characters, or
+   *                  {@code null} if the end of input has been reached.
+   */
+  String readLine(String format, Object... args);
+
+}
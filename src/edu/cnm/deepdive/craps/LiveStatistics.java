@@ -0,0 +1,305 @@
+/**
+ * LiveStatistics.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class collects statistics of simulated play while the simulation is
+ * running, and may be read at any time from any thread: the distribution of
+ * roll sums, of the points established, and of the number of rolls per round;
+ * the longest winning and losing streaks; and the running return of a unit
+ * line bet, with a confidence interval.
+ * <p>
+ * Workers never update the shared counters on every roll. Instead, each
+ * worker tallies into the plain arrays of its own {@link Recorder}, and
+ * flushes those into striped {@link LongAdder} and {@link LongAccumulator}
+ * instances once per chunk of rounds (see {@link Simulator#CHUNK_ROUNDS}); a
+ * flush costs a few dozen uncontended adds, so the overhead on the workers is
+ * negligible, and readers see values that are at most one chunk per worker
+ * behind. Since the adders are read without locking, a reading taken while
+ * workers are flushing may mix tallies from slightly different moments.
+ * <p>
+ * Streaks are counted within the rounds played by a single recorder (i.e. a
+ * whole sequential run, or a single chunk of a parallel run), since the
+ * rounds of different chunks of a parallel run are not played in any defined
+ * order.
+ *
+ * @author Nicholas Bennett
+ */
+public class LiveStatistics {
+
+  /**
+   * Largest number of rolls per round counted individually; longer rounds
+   * are counted together in the last bucket of the rolls histogram.
+   */
+  public static final int MAX_ROLLS = 32;
+
+  private static final String FORMAT = "rounds = %d; return = %3.4f%% (%3.4f%%, %3.4f%%); "
+      + "longest streaks: win = %d, loss = %d";
+  private static final double DEFAULT_CONFIDENCE = 0.95;
+
+  private final LongAdder[] sums = adders(RuleTable.MAX_SUM + 1);
+  private final LongAdder[] points = adders(RuleTable.MAX_SUM + 1);
+  private final LongAdder[] rollsPerRound = adders(MAX_ROLLS + 1);
+  private final LongAdder wins = new LongAdder();
+  private final LongAdder losses = new LongAdder();
+  private final LongAdder pushes = new LongAdder();
+  private final LongAccumulator longestWinStreak = new LongAccumulator(Math::max, 0);
+  private final LongAccumulator longestLossStreak = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Returns a new recorder, for the exclusive use of a single worker thread.
+   *
+   * @return    recorder
+   */
+  public Recorder recorder() {
+    return new Recorder();
+  }
+
+  /**
+   * Returns the number of rolls of each sum so far. Element {@code s} of the
+   * returned array is the count of rolls with sum {@code s}.
+   *
+   * @return    Histogram of roll sums, indexed by sum.
+   */
+  public long[] getSumHistogram() {
+    return sum(sums);
+  }
+
+  /**
+   * Returns the number of times each point has been established so far.
+   *
+   * @return    Histogram of points, indexed by point.
+   */
+  public long[] getPointHistogram() {
+    return sum(points);
+  }
+
+  /**
+   * Returns the number of rounds resolved in each number of rolls so far.
+   * Element {@code k} of the returned array is the count of rounds resolved
+   * in exactly {@code k} rolls, except for element {@link #MAX_ROLLS}, which
+   * counts all rounds of {@link #MAX_ROLLS} rolls or more.
+   *
+   * @return    Histogram of rolls per round.
+   */
+  public long[] getRollsHistogram() {
+    return sum(rollsPerRound);
+  }
+
+  /**
+   * Returns the number of rounds completed so far.
+   *
+   * @return    rounds
+   */
+  public long getRounds() {
+    return wins.sum() + losses.sum() + pushes.sum();
+  }
+
+  /**
+   * Returns the longest streak of consecutive wins so far.
+   *
+   * @return    longest winning streak
+   */
+  public long getLongestWinStreak() {
+    return longestWinStreak.get();
+  }
+
+  /**
+   * Returns the longest streak of consecutive losses so far.
+   *
+   * @return    longest losing streak
+   */
+  public long getLongestLossStreak() {
+    return longestLossStreak.get();
+  }
+
+  /**
+   * Returns the mean return per round of a unit line bet so far, or 0 if no
+   * rounds have been completed.
+   *
+   * @return    running return
+   */
+  public double getReturn() {
+    long wins = this.wins.sum();
+    long losses = this.losses.sum();
+    long rounds = wins + losses + pushes.sum();
+    return (rounds > 0) ? (double) (wins - losses) / rounds : 0;
+  }
+
+  /**
+   * Returns a normal-approximation confidence interval for the expected
+   * return per round of a unit line bet, based on the rounds completed so
+   * far.
+   *
+   * @param confidence    Confidence level, in {@code (0, 1)} (e.g. 0.95).
+   * @return              Lower and upper bounds of interval; both are 0 if no
+   *                      rounds have been completed.
+   */
+  public double[] getReturnInterval(double confidence) {
+    long wins = this.wins.sum();
+    long losses = this.losses.sum();
+    long rounds = wins + losses + pushes.sum();
+    if (rounds == 0) {
+      return new double[2];
+    }
+    double mean = (double) (wins - losses) / rounds;
+    double variance = (double) (wins + losses) / rounds - mean * mean;
+    double halfWidth = normalQuantile(0.5 + confidence / 2) * Math.sqrt(variance / rounds);
+    return new double[] {mean - halfWidth, mean + halfWidth};
+  }
+
+  /**
+   * Returns the quantile function (inverse cumulative distribution function)
+   * of the standard normal distribution, using the rational approximation of
+   * P. J. Acklam (relative error below 1.2e-9).
+   *
+   * @param p   Probability, in {@code (0, 1)}.
+   * @return    Value {@code z} such that {@code P(Z <= z) = p}.
+   * @throws IllegalArgumentException   If {@code p} is not in {@code (0, 1)}.
+   */
+  public static double normalQuantile(double p) {
+    if (!(p > 0 && p < 1)) {
+      throw new IllegalArgumentException("Probability must be in (0, 1).");
+    }
+    final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+        1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+    final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+        6.680131188771972e+01, -1.328068155288572e+01};
+    final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+        -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+    final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+        3.754408661907416e+00};
+    final double low = 0.02425;
+    if (p < low || p > 1 - low) {
+      double q = Math.sqrt(-2 * Math.log((p < low) ? p : 1 - p));
+      double z = (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+          / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+      return (p < low) ? z : -z;
+    }
+    double q = p - 0.5;
+    double r = q * q;
+    return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+        / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+  }
+
+  @Override
+  public String toString() {
+    double[] interval = getReturnInterval(DEFAULT_CONFIDENCE);
+    return String.format(FORMAT, getRounds(), 100 * getReturn(), 100 * interval[0],
+        100 * interval[1], getLongestWinStreak(), getLongestLossStreak());
+  }
+
+  private static LongAdder[] adders(int length) {
+    LongAdder[] adders = new LongAdder[length];
+    for (int i = 0; i < length; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  private static long[] sum(LongAdder[] adders) {
+    long[] sums = new long[adders.length];
+    for (int i = 0; i < adders.length; i++) {
+      sums[i] = adders[i].sum();
+    }
+    return sums;
+  }
+
+  /**
+   * Per-worker tally of the events of play, flushed to the shared counters by
+   * {@link #flush()}. An instance must be used by only one thread at a time.
+   */
+  public class Recorder {
+
+    private final long[] rolls = new long[Rolls.COMBINATIONS];
+    private final long[] sums = new long[RuleTable.MAX_SUM + 1];
+    private final long[] points = new long[RuleTable.MAX_SUM + 1];
+    private final long[] rollsPerRound = new long[MAX_ROLLS + 1];
+    private long wins;
+    private long losses;
+    private long pushes;
+    private int streak;
+    private int longestWinStreak;
+    private int longestLossStreak;
+
+    private Recorder() {
+    }
+
+    /**
+     * Records a roll.
+     *
+     * @param roll    Roll code (see {@link Rolls}).
+     */
+    public void roll(int roll) {
+      rolls[roll]++;
+    }
+
+    /**
+     * Records the establishment of a point.
+     *
+     * @param point   Point.
+     */
+    public void point(int point) {
+      points[point]++;
+    }
+
+    /**
+     * Records the end of a round.
+     *
+     * @param outcome   Outcome of round (one of {@link RuleTable#WIN},
+     *                  {@link RuleTable#LOSE}, or {@link RuleTable#PUSH}).
+     * @param rolls     Number of rolls in round.
+     */
+    public void roundEnd(int outcome, int rolls) {
+      rollsPerRound[Math.min(rolls, MAX_ROLLS)]++;
+      if (outcome == RuleTable.WIN) {
+        wins++;
+        streak = (streak > 0) ? streak + 1 : 1;
+        longestWinStreak = Math.max(longestWinStreak, streak);
+      } else if (outcome == RuleTable.LOSE) {
+        losses++;
+        streak = (streak < 0) ? streak - 1 : -1;
+        longestLossStreak = Math.max(longestLossStreak, -streak);
+      } else {
+        pushes++;
+      }
+    }
+
+    /**
+     * Adds the tallies recorded since the last flush to the shared counters,
+     * and resets them. The current streak is retained.
+     */
+    public void flush() {
+      for (int roll = 0; roll < Rolls.COMBINATIONS; roll++) {
+        sums[Rolls.sum(roll)] += rolls[roll];
+        rolls[roll] = 0;
+      }
+      flush(sums, LiveStatistics.this.sums);
+      flush(points, LiveStatistics.this.points);
+      flush(rollsPerRound, LiveStatistics.this.rollsPerRound);
+      LiveStatistics.this.wins.add(wins);
+      LiveStatistics.this.losses.add(losses);
+      LiveStatistics.this.pushes.add(pushes);
+      LiveStatistics.this.longestWinStreak.accumulate(longestWinStreak);
+      LiveStatistics.this.longestLossStreak.accumulate(longestLossStreak);
+      wins = 0;
+      losses = 0;
+      pushes = 0;
+    }
+
+    private void flush(long[] counts, LongAdder[] adders) {
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] != 0) {
+          adders[i].add(counts[i]);
+          counts[i] = 0;
+        }
+      }
+    }
+
+  }
+
+}
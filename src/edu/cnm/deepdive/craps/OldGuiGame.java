@@ -3,9 +3,7 @@
  */
 package edu.cnm.deepdive.craps;
 
-import java.net.URL;
-
-import javax.swing.ImageIcon;
+import javax.swing.Icon;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -18,10 +16,10 @@ import javax.swing.SwingUtilities;
 public class OldGuiGame {
   
   JFrame frame;
-  ImageIcon[] dieFaces;
-  ImageIcon blank;
-  ImageIcon roll;
-  ImageIcon halt;
+  Icon[] dieFaces;
+  Icon blank;
+  Icon roll;
+  Icon halt;
   JButton roll1;
   JButton roll2;
   JButton rollAction;
@@ -32,13 +30,13 @@ public class OldGuiGame {
   private void createAndShowGui() {
     frame = new JFrame("Craps Game");
     frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    dieFaces = new ImageIcon[6];
+    dieFaces = new Icon[6];
     for ( int i = 0; i < 6; i++) {
-      dieFaces[i] = createImageIcon(String.format("images/%d.png", i + 1));
+      dieFaces[i] = IconCache.get(String.format("images/%d.png", i + 1));
     }
-    blank = createImageIcon("images/blank.png");
-    roll = createImageIcon("images/roll.png");
-    halt = createImageIcon("images/halt.png");
+    blank = IconCache.get("images/blank.png");
+    roll = IconCache.get("images/roll.png");
+    halt = IconCache.get("images/halt.png");
     roll1 = new JButton(dieFaces[5]);
     roll2 = new JButton(blank);
     rollAction = new JButton(roll);
@@ -84,10 +82,6 @@ public class OldGuiGame {
     });
   }
   
-  private static ImageIcon createImageIcon(String path) {
-    URL imgURL = OldGuiGame.class.getClassLoader().getResource(path);
-    return new ImageIcon(imgURL);
-  }
   /**
    * @param args
    */
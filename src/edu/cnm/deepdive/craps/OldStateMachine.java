@@ -35,6 +35,10 @@ public class OldStateMachine {
     
     void update(int[] roll);
     
+    default void update(int die1, int die2) {
+      update(new int[] {die1, die2});
+    }
+    
   }
   
   private PlayState state = PlayState.COME_OUT;
@@ -52,12 +56,10 @@ public class OldStateMachine {
    */
   public void play() {
     while (state == PlayState.COME_OUT && playable.playAgain(wins, losses)) {
-      int[] roll = {
-          rng.nextInt(6) + 1,
-          rng.nextInt(6) + 1
-      };
-      int sum = roll[0] + roll[1];
-      display.update(roll);
+      int die1 = rng.nextInt(6) + 1;
+      int die2 = rng.nextInt(6) + 1;
+      int sum = die1 + die2;
+      display.update(die1, die2);
       ComeOutResult result = ComeOutResult.POINT;
       int point = sum;
       switch (sum) {
@@ -75,12 +77,10 @@ public class OldStateMachine {
         default:
           state = PlayState.CONTINUE;
           while (state == PlayState.CONTINUE && continuable.continuePlay(wins, losses, point)) {
-            roll = new int[] {
-                rng.nextInt(6) + 1,
-                rng.nextInt(6) + 1
-            };
-            sum = roll[0] + roll[1];
-            display.update(roll);
+            die1 = rng.nextInt(6) + 1;
+            die2 = rng.nextInt(6) + 1;
+            sum = die1 + die2;
+            display.update(die1, die2);
             if (sum == point) {
               wins++;
               state = PlayState.COME_OUT;
@@ -0,0 +1,26 @@
+/**
+ * PointEvent.java
+ */
+package edu.cnm.deepdive.craps;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event marking the establishment of a point in
+ * {@link StateMachine#play()}.
+ *
+ * @author Nicholas Bennett
+ */
+@Name("edu.cnm.deepdive.craps.Point")
+@Label("Point Established")
+@Category("Craps")
+@Description("A come-out roll established a point")
+final class PointEvent extends jdk.jfr.Event {
+
+  @Label("Point")
+  int point;
+
+}
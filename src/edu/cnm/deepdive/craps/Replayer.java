@@ -0,0 +1,454 @@
+/**
+ * Replayer.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class reproduces recorded play exactly, by feeding the rolls of an
+ * event log (see {@link EventLog}) back through a {@link StateMachine}, one
+ * {@link StateMachine#decide(boolean)} step at a time, and checking that every
+ * recomputed round outcome and state transition, and the final tallies of
+ * wins and losses, match those recorded. Alternatively, each session that was
+ * logged with its seed may be replayed from that seed (with the dice algorithm
+ * recorded for the session), in which case every regenerated roll is also
+ * checked against the recorded roll. Either way, each session is replayed
+ * with the rules recorded for it, which must be one of the standard
+ * {@link RuleTable} instances.
+ * <p>
+ * The log is streamed through an {@link EventLogReader}, so memory use does
+ * not depend on the size of the log; several logs may be validated at once,
+ * each on its own thread.
+ *
+ * @author Nicholas Bennett
+ */
+public class Replayer {
+
+  private static final String SEED_OPTION = "--seed";
+
+  private final boolean fromSeed;
+
+  /**
+   * Replays each of the specified logs, in parallel, and prints a report of
+   * each session in each log.
+   *
+   * @param args  Command-line arguments: {@code --seed} (optional, to
+   *              regenerate the rolls of seeded sessions from their seeds),
+   *              followed by the locations of one or more log files.
+   */
+  public static void main(String[] args) {
+    boolean fromSeed = (args.length > 0 && args[0].equals(SEED_OPTION));
+    if (fromSeed) {
+      args = Arrays.copyOfRange(args, 1, args.length);
+    }
+    Replayer replayer = new Replayer(fromSeed);
+    boolean consistent = Arrays.stream(args)
+        .parallel()
+        .map((file) -> {
+          try {
+            List<Report> reports = replayer.replay(Paths.get(file));
+            StringBuilder builder = new StringBuilder();
+            for (Report report : reports) {
+              builder.append(file).append(": ").append(report).append(System.lineSeparator());
+            }
+            System.out.print(builder);
+            return reports.stream().allMatch(Report::isConsistent);
+          } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+          }
+        })
+        .reduce(true, Boolean::logicalAnd);
+    if (!consistent) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Initializes the replayer.
+   *
+   * @param fromSeed    {@code true} to regenerate the rolls of each session
+   *                    logged with a seed from that seed (with the algorithm
+   *                    recorded for the session); {@code false} to use the
+   *                    recorded rolls.
+   */
+  public Replayer(boolean fromSeed) {
+    this.fromSeed = fromSeed;
+  }
+
+  /**
+   * Replays every session in the specified log, and returns a report for
+   * each. Rolls recorded before the first session-start record (if any) are
+   * reported as a session with ID and seed of 0, played with the pass line
+   * rules.
+   *
+   * @param path    Location of log file.
+   * @return        Reports, in the order of the sessions in the log.
+   * @throws IOException    If the log cannot be read, or is corrupt, or a
+   *                        session uses rules that are not standard, or (when
+   *                        replaying from seeds) an unavailable dice
+   *                        algorithm.
+   */
+  public List<Report> replay(Path path) throws IOException {
+    List<Report> reports = new ArrayList<>();
+    try (EventLogReader reader = new EventLogReader(path)) {
+      Session session =
+          new Session(0, 0, EventLog.DEFAULT_ALGORITHM, RuleTable.PASS_LINE, false);
+      for (int kind = reader.next(); kind != EventLog.END; kind = reader.next()) {
+        switch (kind) {
+          case EventLog.ROLL:
+            session.roll(reader.getRoll());
+            break;
+          case EventLog.ROUND_END:
+            session.roundEnd(reader.getOutcome());
+            break;
+          case EventLog.STATE:
+            session.state(reader.getState());
+            break;
+          case EventLog.SESSION:
+            if (session.events > 0) {
+              reports.add(session.finish());
+            }
+            session = startSession(reader);
+            break;
+          default:
+            // Settlements do not affect the line bet tallies.
+        }
+      }
+      if (session.events > 0 || reports.isEmpty()) {
+        reports.add(session.finish());
+      }
+    }
+    return reports;
+  }
+
+  private Session startSession(EventLogReader reader) throws IOException {
+    long id = reader.getSessionId();
+    RuleTable rules = RuleTable.forName(reader.getRulesName());
+    if (rules == null) {
+      throw new IOException(String.format(
+          "Session %d uses unknown rules: %s.", id, reader.getRulesName()));
+    }
+    try {
+      return new Session(id, reader.getSeed(), reader.getAlgorithm(), rules, fromSeed);
+    } catch (IllegalArgumentException ex) {
+      throw new IOException(String.format(
+          "Session %d uses an unavailable dice algorithm: %s.", id, reader.getAlgorithm()), ex);
+    }
+  }
+
+  /**
+   * Replays a single session, step by step, counting discrepancies between
+   * the recomputed and recorded events.
+   */
+  private static class Session {
+
+    private final long id;
+    private final long seed;
+    private final String algorithm;
+    private final RuleTable rules;
+    private final RecordedDice recorded;
+    private final StateMachine machine;
+    private long events;
+    private long rolls;
+    private long wins;
+    private long losses;
+    private long pushes;
+    private long mismatches;
+    private long firstMismatch = -1;
+    private int pendingOutcome = RuleTable.NONE;
+
+    private Session(long id, long seed, String algorithm, RuleTable rules, boolean fromSeed) {
+      this.id = id;
+      this.seed = seed;
+      this.algorithm = algorithm;
+      this.rules = rules;
+      if (fromSeed) {
+        recorded = null;
+        machine = new StateMachine(DiceSource.of(algorithm, seed), rules);
+      } else {
+        recorded = new RecordedDice();
+        machine = new StateMachine(recorded, rules);
+      }
+    }
+
+    private void roll(int roll) {
+      events++;
+      rolls++;
+      check(pendingOutcome == RuleTable.NONE);
+      if (machine.getState() == StateMachine.PlayState.DONE) {
+        mismatch();
+        return;
+      }
+      if (recorded != null) {
+        recorded.roll = roll;
+      }
+      machine.decide(true);
+      check(machine.getLastRoll() == roll);
+      int outcome = machine.getLastOutcome();
+      pendingOutcome = (outcome == RuleTable.POINT) ? RuleTable.NONE : outcome;
+    }
+
+    private void roundEnd(int outcome) {
+      events++;
+      if (outcome == RuleTable.WIN) {
+        wins++;
+      } else if (outcome == RuleTable.LOSE) {
+        losses++;
+      } else {
+        pushes++;
+      }
+      if (pendingOutcome != RuleTable.NONE) {
+        check(pendingOutcome == outcome);
+        pendingOutcome = RuleTable.NONE;
+      } else if (machine.getState() == StateMachine.PlayState.CONTINUE
+          && outcome == RuleTable.LOSE) {
+        machine.decide(false);
+      } else {
+        mismatch();
+      }
+    }
+
+    private void state(StateMachine.PlayState state) {
+      events++;
+      if (state == StateMachine.PlayState.DONE
+          && machine.getState() == StateMachine.PlayState.COME_OUT) {
+        machine.decide(false);
+      }
+      check(machine.getState() == state);
+    }
+
+    private void check(boolean matched) {
+      if (!matched) {
+        mismatch();
+      }
+    }
+
+    private void mismatch() {
+      if (mismatches++ == 0) {
+        firstMismatch = events;
+      }
+    }
+
+    private Report finish() {
+      check(pendingOutcome == RuleTable.NONE);
+      return new Report(id, seed, algorithm, rules.getName(), rolls, wins, losses, pushes,
+          machine.getWins(), machine.getLosses(), mismatches, firstMismatch);
+    }
+
+  }
+
+  /**
+   * Source of dice rolls that simply returns the roll most recently read from
+   * the log.
+   */
+  private static class RecordedDice implements DiceSource {
+
+    private int roll;
+    private int pendingDie;
+
+    @Override
+    public int nextRoll() {
+      return roll;
+    }
+
+    /**
+     * Returns the dice of the recorded roll one at a time: the first
+     * invocation returns the first die of the roll, and the second returns the
+     * other die of the same roll.
+     */
+    @Override
+    public int nextDie() {
+      if (pendingDie != 0) {
+        int die = pendingDie;
+        pendingDie = 0;
+        return die;
+      }
+      int roll = nextRoll();
+      pendingDie = Rolls.die2(roll);
+      return Rolls.die1(roll);
+    }
+
+    @Override
+    public DiceSource split() {
+      throw new UnsupportedOperationException("Recorded rolls cannot be split.");
+    }
+
+  }
+
+  /**
+   * Result of replaying a single session: the tallies recorded in the log,
+   * the tallies recomputed by the {@link StateMachine}, and the number of
+   * events at which the two disagree.
+   */
+  public static class Report {
+
+    private static final String FORMAT = "session %d (seed %d, %s, %s): rolls = %d; "
+        + "rounds = %d; wins = %d/%d; losses = %d/%d; mismatches = %d%s";
+    private static final String FIRST_MISMATCH_FORMAT = " (first at event %d)";
+
+    private final long sessionId;
+    private final long seed;
+    private final String algorithm;
+    private final String rules;
+    private final long rolls;
+    private final long wins;
+    private final long losses;
+    private final long pushes;
+    private final long replayedWins;
+    private final long replayedLosses;
+    private final long mismatches;
+    private final long firstMismatch;
+
+    private Report(long sessionId, long seed, String algorithm, String rules, long rolls,
+        long wins, long losses, long pushes, long replayedWins, long replayedLosses,
+        long mismatches, long firstMismatch) {
+      this.sessionId = sessionId;
+      this.seed = seed;
+      this.algorithm = algorithm;
+      this.rules = rules;
+      this.rolls = rolls;
+      this.wins = wins;
+      this.losses = losses;
+      this.pushes = pushes;
+      this.replayedWins = replayedWins;
+      this.replayedLosses = replayedLosses;
+      this.mismatches = mismatches;
+      this.firstMismatch = firstMismatch;
+    }
+
+    /**
+     * Returns the session ID recorded in the log.
+     *
+     * @return    session ID
+     */
+    public long getSessionId() {
+      return sessionId;
+    }
+
+    /**
+     * Returns the seed recorded in the log.
+     *
+     * @return    seed
+     */
+    public long getSeed() {
+      return seed;
+    }
+
+    /**
+     * Returns the name of the dice algorithm recorded in the log.
+     *
+     * @return    algorithm
+     */
+    public String getAlgorithm() {
+      return algorithm;
+    }
+
+    /**
+     * Returns the name of the rules recorded in the log.
+     *
+     * @return    name of rules
+     */
+    public String getRulesName() {
+      return rules;
+    }
+
+    /**
+     * Returns the number of rolls recorded in the session.
+     *
+     * @return    rolls
+     */
+    public long getRolls() {
+      return rolls;
+    }
+
+    /**
+     * Returns the number of rounds recorded in the session.
+     *
+     * @return    rounds
+     */
+    public long getRounds() {
+      return wins + losses + pushes;
+    }
+
+    /**
+     * Returns the number of wins recorded in the log.
+     *
+     * @return    wins
+     */
+    public long getWins() {
+      return wins;
+    }
+
+    /**
+     * Returns the number of losses recorded in the log.
+     *
+     * @return    losses
+     */
+    public long getLosses() {
+      return losses;
+    }
+
+    /**
+     * Returns the tally of wins recomputed by replay.
+     *
+     * @return    wins
+     */
+    public long getReplayedWins() {
+      return replayedWins;
+    }
+
+    /**
+     * Returns the tally of losses recomputed by replay.
+     *
+     * @return    losses
+     */
+    public long getReplayedLosses() {
+      return replayedLosses;
+    }
+
+    /**
+     * Returns the number of recorded events that disagree with replay.
+     *
+     * @return    mismatches
+     */
+    public long getMismatches() {
+      return mismatches;
+    }
+
+    /**
+     * Returns the 1-based index, within the session, of the first recorded
+     * event that disagrees with replay, or -1 if there is none.
+     *
+     * @return    event index
+     */
+    public long getFirstMismatch() {
+      return firstMismatch;
+    }
+
+    /**
+     * Returns a flag indicating whether replay reproduced the session
+     * exactly.
+     *
+     * @return    {@code true} if no event disagrees, and the tallies match.
+     */
+    public boolean isConsistent() {
+      return mismatches == 0 && wins == replayedWins && losses == replayedLosses;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(FORMAT, sessionId, seed, algorithm, rules, rolls, getRounds(),
+          replayedWins, wins, replayedLosses, losses, mismatches,
+          (firstMismatch >= 0) ? String.format(FIRST_MISMATCH_FORMAT, firstMismatch) : "");
+    }
+
+  }
+
+}
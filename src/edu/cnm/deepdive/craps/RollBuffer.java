@@ -0,0 +1,59 @@
+/**
+ * RollBuffer.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reusable buffer of roll codes, filled in blocks from a {@link DiceSource}
+ * via {@link DiceSource#nextRolls(byte[], int, int)}, and consumed one roll
+ * at a time. The rolls are consumed in exactly the order in which the source
+ * generates them, so reading a stream through a buffer yields the same rolls
+ * as reading it directly; the unconsumed rolls in the buffer are part of the
+ * state of the stream, and are saved and restored along with the state of
+ * the source by {@link Simulator} checkpoints.
+ *
+ * @author Nicholas Bennett
+ */
+final class RollBuffer {
+
+  /** Number of rolls generated per block. */
+  static final int BLOCK_SIZE = 1024;
+
+  private final DiceSource dice;
+  private final byte[] rolls = new byte[BLOCK_SIZE];
+  private int position;
+  private int limit;
+
+  RollBuffer(DiceSource dice) {
+    this.dice = dice;
+  }
+
+  int next() {
+    if (position == limit) {
+      dice.nextRolls(rolls, 0, BLOCK_SIZE);
+      position = 0;
+      limit = BLOCK_SIZE;
+    }
+    return rolls[position++];
+  }
+
+  void save(DataOutput out) throws IOException {
+    out.writeShort(limit - position);
+    out.write(rolls, position, limit - position);
+  }
+
+  void restore(DataInput in) throws IOException {
+    int remaining = in.readUnsignedShort();
+    if (remaining > BLOCK_SIZE) {
+      throw new IOException("Invalid roll buffer state.");
+    }
+    in.readFully(rolls, 0, remaining);
+    position = 0;
+    limit = remaining;
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Rolls.java
+ */
+package edu.cnm.deepdive.craps;
+
+/**
+ * Static utility methods for a compact, allocation-free encoding of a roll of
+ * two dice as a single {@code int} (or {@code byte}) code. The code is the
+ * index of the roll among the 36 equally likely combinations, i.e.
+ * {@code 6 * (die1 - 1) + (die2 - 1)}, so that it is always in the range
+ * {@code [0, }{@link #COMBINATIONS}{@code )}, and may be used directly as an
+ * index into lookup tables.
+ *
+ * @author Nicholas Bennett
+ */
+public final class Rolls {
+
+  /** Number of distinct (ordered) combinations of two dice. */
+  public static final int COMBINATIONS = 36;
+  /** Number of faces on each die. */
+  public static final int FACES = 6;
+
+  private static final byte[] SUMS = new byte[COMBINATIONS];
+
+  static {
+    for (int code = 0; code < COMBINATIONS; code++) {
+      SUMS[code] = (byte) (die1(code) + die2(code));
+    }
+  }
+
+  private Rolls() {
+    // Not instantiable.
+  }
+
+  /**
+   * Returns the code of the roll with the specified dice values.
+   *
+   * @param die1    Value of first die, in the range {@code [1, 6]}.
+   * @param die2    Value of second die, in the range {@code [1, 6]}.
+   * @return        Roll code.
+   */
+  public static int pack(int die1, int die2) {
+    return FACES * (die1 - 1) + (die2 - 1);
+  }
+
+  /**
+   * Returns the value of the first die of the specified roll code.
+   *
+   * @param roll    Roll code.
+   * @return        Value of first die.
+   */
+  public static int die1(int roll) {
+    return roll / FACES + 1;
+  }
+
+  /**
+   * Returns the value of the second die of the specified roll code.
+   *
+   * @param roll    Roll code.
+   * @return        Value of second die.
+   */
+  public static int die2(int roll) {
+    return roll % FACES + 1;
+  }
+
+  /**
+   * Returns the sum of the dice of the specified roll code.
+   *
+   * @param roll    Roll code.
+   * @return        Sum of dice values.
+   */
+  public static int sum(int roll) {
+    return SUMS[roll];
+  }
+
+  /**
+   * Returns the number of the 36 combinations of two dice that produce the
+   * specified sum.
+   *
+   * @param sum     Sum of dice values.
+   * @return        Number of combinations; zero if {@code sum} is not in the
+   *                range {@code [2, 12]}.
+   */
+  public static int ways(int sum) {
+    return (sum < 2 || sum > 12) ? 0 : FACES - Math.abs(sum - 7);
+  }
+
+}
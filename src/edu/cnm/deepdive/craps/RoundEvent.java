@@ -0,0 +1,35 @@
+/**
+ * RoundEvent.java
+ */
+package edu.cnm.deepdive.craps;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a round of play in {@link StateMachine#play()},
+ * from the decision to roll the come-out roll to the resolution (or
+ * abandonment) of the round.
+ *
+ * @author Nicholas Bennett
+ */
+@Name("edu.cnm.deepdive.craps.Round")
+@Label("Round")
+@Category("Craps")
+@Description("A round of play, from the come-out roll to its resolution")
+final class RoundEvent extends jdk.jfr.Event {
+
+  @Label("Outcome")
+  @Description("Outcome of the round (1 = win, 2 = loss, 3 = push)")
+  int outcome;
+
+  @Label("Point")
+  @Description("Point established in the round, or 0 if none")
+  int point;
+
+  @Label("Rolls")
+  int rolls;
+
+}
@@ -0,0 +1,367 @@
+/**
+ * RoundSampler.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * This class draws whole rounds of a line bet (outcome and number of rolls)
+ * directly from their joint distribution, without simulating individual
+ * rolls. The distribution is obtained from an {@link ExactEvaluator} for the
+ * rules, and tabulated once in a Walker alias table (built with Vose's
+ * method), so that each round costs one bounded integer and one uniform
+ * double, regardless of its length.
+ * <p>
+ * The table holds one entry for each outcome and each number of rolls up to a
+ * limit (by default, {@link LiveStatistics#MAX_ROLLS}), and one entry for
+ * each point that may still be unresolved after that many rolls. When one of
+ * the latter is drawn, the round is continued roll by roll from that point,
+ * exactly as {@link Simulator} would play it; since the point phase is
+ * memoryless, the rounds drawn have exactly the distribution of rounds played
+ * by the per-roll engine, including the unbounded tail. (With the default
+ * limit, fewer than 1 round in 5,000 is continued.)
+ * <p>
+ * An instance is immutable once constructed, and may be shared between
+ * threads, as long as each thread uses its own {@link RandomGenerator}.
+ *
+ * @author Nicholas Bennett
+ */
+public class RoundSampler {
+
+  private static final int OUTCOME_BITS = 3;
+  private static final int OUTCOME_MASK = (1 << OUTCOME_BITS) - 1;
+  private static final long DEFAULT_ROUNDS = 10_000_000L;
+  private static final double SIGNIFICANCE = 0.001;
+  private static final double MIN_EXPECTED = 5;
+  private static final int[] OUTCOMES = {RuleTable.WIN, RuleTable.LOSE, RuleTable.PUSH};
+  private static final String TEST_FORMAT = "%s: chi-square = %.2f; df = %d; critical = %.2f%n";
+  private static final String TIME_FORMAT = "%s: %.2f ns/round%n";
+
+  private final RuleTable rules;
+  private final int maxRolls;
+  private final int[] rounds;
+  private final int[] points;
+  private final double[] probabilities;
+  private final int[] aliases;
+
+  /**
+   * Verifies the sampler against the per-roll engine: draws the specified
+   * number of rounds with each, and applies chi-square tests of the joint
+   * distribution of outcome and rolls per round, to each sample against the
+   * exact distribution, and to the two samples against each other. Exits
+   * with status 1 if any test rejects at the 0.1% level.
+   *
+   * @param args  Command-line arguments: number of rounds (optional, default
+   *              10,000,000), and seed (optional).
+   */
+  public static void main(String[] args) {
+    long rounds = (args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_ROUNDS;
+    long seed = (args.length > 1) ? Long.parseLong(args[1]) : new SplittableRandom().nextLong();
+    RuleTable rules = RuleTable.PASS_LINE;
+    RoundSampler sampler = new RoundSampler(rules);
+    int maxRolls = sampler.maxRolls;
+    ExactEvaluator evaluator = new ExactEvaluator(rules);
+    double[] totals = {evaluator.getWinProbability(), evaluator.getLossProbability(),
+        evaluator.getPushProbability()};
+    double[] expected = new double[OUTCOMES.length * (maxRolls + 1)];
+    for (int i = 0; i < OUTCOMES.length; i++) {
+      double tail = totals[i];
+      for (int rolls = 1; rolls <= maxRolls; rolls++) {
+        double probability = evaluator.getProbability(OUTCOMES[i], rolls);
+        expected[cell(i, rolls, maxRolls)] = probability * rounds;
+        tail -= probability;
+      }
+      expected[cell(i, maxRolls + 1, maxRolls)] = Math.max(tail, 0) * rounds;
+    }
+    RandomGenerator rng = new SplittableRandom(seed);
+    long[] sampled = new long[expected.length];
+    long start = System.nanoTime();
+    for (long round = 0; round < rounds; round++) {
+      int sample = sampler.sample(rng);
+      sampled[cell(sample, maxRolls)]++;
+    }
+    System.out.printf(TIME_FORMAT, "alias sampler",
+        (double) (System.nanoTime() - start) / rounds);
+    long[] played = new long[expected.length];
+    RollBuffer buffer = new RollBuffer(DiceSource.splittable(~seed));
+    start = System.nanoTime();
+    for (long round = 0; round < rounds; round++) {
+      int sample = play(rules, buffer);
+      played[cell(sample, maxRolls)]++;
+    }
+    System.out.printf(TIME_FORMAT, "per-roll engine",
+        (double) (System.nanoTime() - start) / rounds);
+    boolean consistent = test("alias sampler vs. exact",
+        new long[][] {sampled}, new double[][] {expected});
+    consistent &= test("per-roll engine vs. exact",
+        new long[][] {played}, new double[][] {expected});
+    double[] expectedSampled = new double[expected.length];
+    double[] expectedPlayed = new double[expected.length];
+    for (int i = 0; i < expected.length; i++) {
+      expectedSampled[i] = (sampled[i] + played[i]) / 2.0;
+      expectedPlayed[i] = expectedSampled[i];
+    }
+    consistent &= test("alias sampler vs. per-roll engine",
+        new long[][] {sampled, played}, new double[][] {expectedSampled, expectedPlayed});
+    if (!consistent) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Initializes the sampler for the specified rules, with individual table
+   * entries for rounds of up to {@link LiveStatistics#MAX_ROLLS} rolls.
+   *
+   * @param rules   Rules of the variant.
+   */
+  public RoundSampler(RuleTable rules) {
+    this(rules, LiveStatistics.MAX_ROLLS);
+  }
+
+  /**
+   * Initializes the sampler for the specified rules, with individual table
+   * entries for rounds of up to the specified number of rolls.
+   *
+   * @param rules       Rules of the variant.
+   * @param maxRolls    Largest number of rolls tabulated individually.
+   * @throws IllegalArgumentException   If {@code maxRolls} is less than 1.
+   */
+  public RoundSampler(RuleTable rules, int maxRolls) {
+    if (maxRolls < 1) {
+      throw new IllegalArgumentException("At least one roll must be tabulated.");
+    }
+    this.rules = rules;
+    this.maxRolls = maxRolls;
+    ExactEvaluator evaluator = new ExactEvaluator(rules);
+    List<Integer> rounds = new ArrayList<>();
+    List<Integer> points = new ArrayList<>();
+    List<Double> weights = new ArrayList<>();
+    for (int outcome : OUTCOMES) {
+      for (int rolls = 1; rolls <= maxRolls; rolls++) {
+        double weight = evaluator.getProbability(outcome, rolls);
+        if (weight > 0) {
+          rounds.add(encode(outcome, rolls));
+          points.add(0);
+          weights.add(weight);
+        }
+      }
+    }
+    for (int point = 0; point <= RuleTable.MAX_SUM; point++) {
+      double weight = evaluator.getUnresolvedProbability(point, maxRolls);
+      if (weight > 0) {
+        rounds.add(encode(RuleTable.NONE, maxRolls));
+        points.add(point);
+        weights.add(weight);
+      }
+    }
+    int size = weights.size();
+    this.rounds = new int[size];
+    this.points = new int[size];
+    probabilities = new double[size];
+    aliases = new int[size];
+    double total = 0;
+    for (int i = 0; i < size; i++) {
+      this.rounds[i] = rounds.get(i);
+      this.points[i] = points.get(i);
+      total += weights.get(i);
+    }
+    buildAliasTable(weights, total);
+  }
+
+  /**
+   * Returns the outcome of the specified round, as returned by
+   * {@link #sample(RandomGenerator)}.
+   *
+   * @param round   Encoded round.
+   * @return        One of {@link RuleTable#WIN}, {@link RuleTable#LOSE}, or
+   *                {@link RuleTable#PUSH}.
+   */
+  public static int outcome(int round) {
+    return round & OUTCOME_MASK;
+  }
+
+  /**
+   * Returns the number of rolls in the specified round, as returned by
+   * {@link #sample(RandomGenerator)}.
+   *
+   * @param round   Encoded round.
+   * @return        Number of rolls, including the come-out roll.
+   */
+  public static int rolls(int round) {
+    return round >>> OUTCOME_BITS;
+  }
+
+  /**
+   * Draws a single round.
+   *
+   * @param rng   Source of randomness.
+   * @return      Encoded round; see {@link #outcome(int)} and
+   *              {@link #rolls(int)}.
+   */
+  public int sample(RandomGenerator rng) {
+    int entry = rng.nextInt(probabilities.length);
+    if (rng.nextDouble() >= probabilities[entry]) {
+      entry = aliases[entry];
+    }
+    int point = points[entry];
+    if (point == 0) {
+      return rounds[entry];
+    }
+    int rolls = maxRolls;
+    int outcome;
+    do {
+      outcome = rules.resolve(point, rng.nextInt(Rolls.COMBINATIONS));
+      rolls++;
+    } while (outcome == RuleTable.NONE);
+    return encode(outcome, rolls);
+  }
+
+  /**
+   * Draws the specified number of rounds, and returns the totals.
+   *
+   * @param rng       Source of randomness.
+   * @param rounds    Number of rounds.
+   * @return          Tallies of wins, losses, pushes, and rolls.
+   */
+  public SimulationResult run(RandomGenerator rng, long rounds) {
+    long[] tallies = new long[RuleTable.PUSH + 1];
+    long rolls = 0;
+    for (long i = 0; i < rounds; i++) {
+      int round = sample(rng);
+      tallies[outcome(round)]++;
+      rolls += rolls(round);
+    }
+    return new SimulationResult(
+        tallies[RuleTable.WIN], tallies[RuleTable.LOSE], tallies[RuleTable.PUSH], rolls);
+  }
+
+  /**
+   * Builds the alias table by Vose's method: entries with less than the mean
+   * weight are paired with entries with more, each pair filling exactly one
+   * column of the table.
+   */
+  private void buildAliasTable(List<Double> weights, double total) {
+    int size = weights.size();
+    double[] scaled = new double[size];
+    int[] small = new int[size];
+    int[] large = new int[size];
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < size; i++) {
+      scaled[i] = weights.get(i) * size / total;
+      if (scaled[i] < 1) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+    while (smallCount > 0 && largeCount > 0) {
+      int less = small[--smallCount];
+      int more = large[--largeCount];
+      probabilities[less] = scaled[less];
+      aliases[less] = more;
+      scaled[more] = (scaled[more] + scaled[less]) - 1;
+      if (scaled[more] < 1) {
+        small[smallCount++] = more;
+      } else {
+        large[largeCount++] = more;
+      }
+    }
+    // Entries left over differ from the mean only by rounding error.
+    while (largeCount > 0) {
+      int entry = large[--largeCount];
+      probabilities[entry] = 1;
+      aliases[entry] = entry;
+    }
+    while (smallCount > 0) {
+      int entry = small[--smallCount];
+      probabilities[entry] = 1;
+      aliases[entry] = entry;
+    }
+  }
+
+  private static int encode(int outcome, int rolls) {
+    return (rolls << OUTCOME_BITS) | outcome;
+  }
+
+  /**
+   * Plays a single round roll by roll, as {@link Simulator} does, for
+   * comparison.
+   */
+  private static int play(RuleTable rules, RollBuffer buffer) {
+    int roll = buffer.next();
+    int outcome = rules.comeOut(roll);
+    int rolls = 1;
+    if (outcome == RuleTable.POINT) {
+      int point = Rolls.sum(roll);
+      do {
+        outcome = rules.resolve(point, buffer.next());
+        rolls++;
+      } while (outcome == RuleTable.NONE);
+    }
+    return encode(outcome, rolls);
+  }
+
+  private static int cell(int round, int maxRolls) {
+    int outcome = outcome(round);
+    int index = (outcome == RuleTable.WIN) ? 0 : (outcome == RuleTable.LOSE) ? 1 : 2;
+    return cell(index, rolls(round), maxRolls);
+  }
+
+  private static int cell(int index, int rolls, int maxRolls) {
+    return index * (maxRolls + 1) + Math.min(rolls, maxRolls + 1) - 1;
+  }
+
+  /**
+   * Applies a chi-square test of the observed counts (one or more samples)
+   * against the expected counts, pooling the cells in which any expected
+   * count is small into a single cell, and prints the result. The critical
+   * value is obtained with the Wilson-Hilferty approximation.
+   */
+  private static boolean test(String name, long[][] observed, double[][] expected) {
+    int cells = expected[0].length;
+    int columns = 0;
+    double statistic = 0;
+    long[] pooledObserved = new long[observed.length];
+    double[] pooledExpected = new double[observed.length];
+    for (int cell = 0; cell < cells; cell++) {
+      boolean small = false;
+      for (double[] row : expected) {
+        small |= row[cell] < MIN_EXPECTED;
+      }
+      for (int row = 0; row < observed.length; row++) {
+        if (small) {
+          pooledObserved[row] += observed[row][cell];
+          pooledExpected[row] += expected[row][cell];
+        } else {
+          statistic += chiSquareTerm(observed[row][cell], expected[row][cell]);
+        }
+      }
+      if (!small) {
+        columns++;
+      }
+    }
+    if (pooledExpected[0] > 0) {
+      for (int row = 0; row < observed.length; row++) {
+        statistic += chiSquareTerm(pooledObserved[row], pooledExpected[row]);
+      }
+      columns++;
+    }
+    int df = columns - 1;
+    double z = LiveStatistics.normalQuantile(1 - SIGNIFICANCE);
+    double scale = 2.0 / (9 * df);
+    double critical = df * Math.pow(1 - scale + z * Math.sqrt(scale), 3);
+    System.out.printf(TEST_FORMAT, name, statistic, df, critical);
+    return statistic <= critical;
+  }
+
+  private static double chiSquareTerm(long observed, double expected) {
+    double difference = observed - expected;
+    return difference * difference / expected;
+  }
+
+}
@@ -0,0 +1,242 @@
+/**
+ * RuleTable.java
+ */
+package edu.cnm.deepdive.craps;
+
+/**
+ * This class holds precomputed lookup tables of the outcomes of a line bet in
+ * a variant of craps: one table indexed by the 36 combinations of two dice for
+ * the come-out roll, and one indexed by the point and the 36 combinations for
+ * rolls in the point phase. {@link StateMachine}, {@link Simulator}, and
+ * {@link ExactEvaluator} consult these tables instead of hard-coding the
+ * rules, so that a variant is defined simply by constructing a new table.
+ * <p>
+ * Outcomes are represented as {@code int} constants ({@link #NONE},
+ * {@link #WIN}, {@link #LOSE}, {@link #PUSH}, {@link #POINT}), so that
+ * resolving a roll is a single array access.
+ *
+ * @author Nicholas Bennett
+ */
+public class RuleTable {
+
+  /** Outcome of a point-phase roll that does not resolve the round. */
+  public static final int NONE = 0;
+  /** Outcome of a roll that resolves the round as a win. */
+  public static final int WIN = 1;
+  /** Outcome of a roll that resolves the round as a loss. */
+  public static final int LOSE = 2;
+  /** Outcome of a roll that resolves the round with the bet returned. */
+  public static final int PUSH = 3;
+  /**
+   * Outcome of a come-out roll that establishes the sum of the dice as the
+   * point.
+   */
+  public static final int POINT = 4;
+  /** Largest sum of two dice, and so the largest possible point. */
+  public static final int MAX_SUM = 12;
+
+  /** Standard pass line rules, as originally implemented in {@link StateMachine}. */
+  public static final RuleTable PASS_LINE = new RuleTable("pass",
+      (die1, die2) -> {
+        switch (die1 + die2) {
+          case 2:
+          case 3:
+          case 12:
+            return LOSE;
+          case 7:
+          case 11:
+            return WIN;
+          default:
+            return POINT;
+        }
+      },
+      (point, die1, die2) -> {
+        int sum = die1 + die2;
+        return (sum == point) ? WIN : (sum == 7) ? LOSE : NONE;
+      });
+
+  /** Don't pass rules, with 12 on the come-out roll barred (i.e. a push). */
+  public static final RuleTable DONT_PASS_BAR_12 = new RuleTable("dont-pass-bar-12",
+      (die1, die2) -> {
+        switch (die1 + die2) {
+          case 2:
+          case 3:
+            return WIN;
+          case 12:
+            return PUSH;
+          case 7:
+          case 11:
+            return LOSE;
+          default:
+            return POINT;
+        }
+      },
+      (point, die1, die2) -> {
+        int sum = die1 + die2;
+        return (sum == 7) ? WIN : (sum == point) ? LOSE : NONE;
+      });
+
+  /**
+   * Crapless craps pass line rules: only 7 wins on the come-out roll, and
+   * every other sum (including 2, 3, 11, and 12) establishes a point.
+   */
+  public static final RuleTable CRAPLESS = new RuleTable("crapless",
+      (die1, die2) -> (die1 + die2 == 7) ? WIN : POINT,
+      (point, die1, die2) -> {
+        int sum = die1 + die2;
+        return (sum == point) ? WIN : (sum == 7) ? LOSE : NONE;
+      });
+
+  private final String name;
+  private final byte[] comeOut = new byte[Rolls.COMBINATIONS];
+  private final byte[] pointPhase = new byte[(MAX_SUM + 1) * Rolls.COMBINATIONS];
+  private final String encoding;
+
+  /**
+   * Callback interface used to compute the come-out table.
+   */
+  public interface ComeOutRule {
+
+    /**
+     * Returns the outcome of the specified come-out roll: one of
+     * {@link RuleTable#WIN}, {@link RuleTable#LOSE}, {@link RuleTable#PUSH},
+     * or {@link RuleTable#POINT}.
+     *
+     * @param die1    Value of first die.
+     * @param die2    Value of second die.
+     * @return        Outcome.
+     */
+    int outcome(int die1, int die2);
+
+  }
+
+  /**
+   * Callback interface used to compute the point-phase table.
+   */
+  public interface PointRule {
+
+    /**
+     * Returns the outcome of the specified roll for the specified point: one
+     * of {@link RuleTable#NONE}, {@link RuleTable#WIN}, {@link RuleTable#LOSE},
+     * or {@link RuleTable#PUSH}.
+     *
+     * @param point   Current point.
+     * @param die1    Value of first die.
+     * @param die2    Value of second die.
+     * @return        Outcome.
+     */
+    int outcome(int point, int die1, int die2);
+
+  }
+
+  /**
+   * Initializes the table by evaluating the specified rules for every
+   * combination of two dice (and, for the point phase, every possible point).
+   *
+   * @param name      Name of the variant.
+   * @param comeOut   Come-out rule.
+   * @param point     Point-phase rule.
+   * @throws IllegalArgumentException   If a rule returns an outcome that is
+   *                                    not valid for its phase.
+   */
+  public RuleTable(String name, ComeOutRule comeOut, PointRule point) {
+    this.name = name;
+    for (int roll = 0; roll < Rolls.COMBINATIONS; roll++) {
+      int die1 = Rolls.die1(roll);
+      int die2 = Rolls.die2(roll);
+      int outcome = comeOut.outcome(die1, die2);
+      if (outcome < WIN || outcome > POINT) {
+        throw new IllegalArgumentException(
+            String.format("Invalid come-out outcome %d for [%d, %d].", outcome, die1, die2));
+      }
+      this.comeOut[roll] = (byte) outcome;
+    }
+    for (int sum = 2; sum <= MAX_SUM; sum++) {
+      for (int roll = 0; roll < Rolls.COMBINATIONS; roll++) {
+        int die1 = Rolls.die1(roll);
+        int die2 = Rolls.die2(roll);
+        int outcome = point.outcome(sum, die1, die2);
+        if (outcome < NONE || outcome > PUSH) {
+          throw new IllegalArgumentException(String.format(
+              "Invalid outcome %d for [%d, %d] with point %d.", outcome, die1, die2, sum));
+        }
+        pointPhase[sum * Rolls.COMBINATIONS + roll] = (byte) outcome;
+      }
+    }
+    encoding = encode();
+  }
+
+  /**
+   * Returns the outcome of the specified come-out roll.
+   *
+   * @param roll    Roll code (see {@link Rolls}).
+   * @return        One of {@link #WIN}, {@link #LOSE}, {@link #PUSH}, or
+   *                {@link #POINT}.
+   */
+  public int comeOut(int roll) {
+    return comeOut[roll];
+  }
+
+  /**
+   * Returns the outcome of the specified roll in the point phase.
+   *
+   * @param point   Current point.
+   * @param roll    Roll code (see {@link Rolls}).
+   * @return        One of {@link #NONE}, {@link #WIN}, {@link #LOSE}, or
+   *                {@link #PUSH}.
+   */
+  public int resolve(int point, int roll) {
+    return pointPhase[point * Rolls.COMBINATIONS + roll];
+  }
+
+  /**
+   * Returns the name of the variant.
+   *
+   * @return    name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the standard table ({@link #PASS_LINE}, {@link #DONT_PASS_BAR_12},
+   * or {@link #CRAPLESS}) with the specified name, or {@code null} if there is
+   * none.
+   */
+  static RuleTable forName(String name) {
+    for (RuleTable rules : new RuleTable[] {PASS_LINE, DONT_PASS_BAR_12, CRAPLESS}) {
+      if (rules.name.equals(name)) {
+        return rules;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a canonical text encoding of the contents of this table: the
+   * come-out outcome of each roll code, followed by the point-phase outcomes
+   * of each roll code for each point from 2 to {@link #MAX_SUM}, one digit per
+   * outcome. Two tables with equal encodings resolve every roll identically,
+   * whatever their names.
+   */
+  String getEncoding() {
+    return encoding;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  private String encode() {
+    StringBuilder builder = new StringBuilder(comeOut.length + pointPhase.length);
+    for (byte outcome : comeOut) {
+      builder.append(outcome);
+    }
+    for (int index = 2 * Rolls.COMBINATIONS; index < pointPhase.length; index++) {
+      builder.append(pointPhase[index]);
+    }
+    return builder.toString();
+  }
+
+}
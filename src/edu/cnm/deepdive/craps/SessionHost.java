@@ -0,0 +1,246 @@
+/**
+ * SessionHost.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class hosts any number of concurrent, interactive {@link ConsoleGame}
+ * sessions, each of which keeps the blocking callback style of
+ * {@link StateMachine#play()}. Every session runs on its own thread; when the
+ * runtime supports virtual threads (JDK 21 or later), those threads are
+ * virtual, so that a session blocked waiting for its player's input holds no
+ * platform thread, and tens of thousands of idle sessions can be hosted at
+ * once. On earlier runtimes (including JDK 17, the release targeted by the
+ * build), the host falls back to a pool of platform threads bounded by a
+ * maximum number of concurrent sessions; sessions beyond that limit are
+ * rejected, rather than exhausting the operating system's threads.
+ * <p>
+ * Sessions may be opened over any transport via
+ * {@link #open(LineSource, PrintWriter)}; {@link #serve(int)} accepts
+ * connections on a local TCP socket and opens a session for each.
+ *
+ * @author Nicholas Bennett
+ */
+public class SessionHost implements Closeable {
+
+  /** Default maximum number of concurrent sessions on platform threads. */
+  public static final int DEFAULT_MAX_PLATFORM_SESSIONS = 256;
+
+  private static final int DEFAULT_PORT = 8023;
+  private static final String VIRTUAL_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+  private static final long IDLE_THREAD_TIMEOUT = 60;
+
+  private final ExecutorService executor;
+  private final boolean virtual;
+  private final int maxSessions;
+  private final AtomicInteger activeSessions = new AtomicInteger();
+
+  private volatile ServerSocket server = null;
+
+  /**
+   * Accepts connections on a loopback socket, hosting a game for each.
+   *
+   * @param args  Command-line arguments: port number (optional, default
+   *              8023).
+   * @throws IOException  If the socket cannot be opened.
+   */
+  public static void main(String[] args) throws IOException {
+    int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    try (SessionHost host = new SessionHost()) {
+      if (host.isVirtual()) {
+        System.out.printf("Hosting sessions on port %d (virtual threads).%n", port);
+      } else {
+        System.out.printf("Hosting up to %,d sessions on port %d (platform threads).%n",
+            host.getMaxSessions(), port);
+      }
+      host.serve(port);
+    }
+  }
+
+  /**
+   * Initializes the host, using virtual threads if they are available, or at
+   * most {@link #DEFAULT_MAX_PLATFORM_SESSIONS} platform threads otherwise.
+   */
+  public SessionHost() {
+    this(DEFAULT_MAX_PLATFORM_SESSIONS);
+  }
+
+  /**
+   * Initializes the host, using virtual threads if they are available;
+   * otherwise, using at most the specified number of platform threads, and so
+   * hosting at most that many sessions at once.
+   *
+   * @param maxPlatformSessions   Maximum number of concurrent sessions, if
+   *                              virtual threads are unavailable.
+   * @throws IllegalArgumentException   If {@code maxPlatformSessions} is not
+   *                                    positive.
+   */
+  public SessionHost(int maxPlatformSessions) {
+    if (maxPlatformSessions <= 0) {
+      throw new IllegalArgumentException("Maximum number of sessions must be positive.");
+    }
+    ExecutorService executor;
+    boolean virtual;
+    try {
+      executor = (ExecutorService)
+          Executors.class.getMethod(VIRTUAL_EXECUTOR_FACTORY).invoke(null);
+      virtual = true;
+    } catch (NoSuchMethodException | IllegalAccessException
+        | InvocationTargetException ex) {
+      // Virtual threads are unavailable (or still a preview feature). Each
+      // session still gets its own thread, but with no queue, a session beyond
+      // the limit is rejected instead of waiting for another to end.
+      executor = new ThreadPoolExecutor(0, maxPlatformSessions,
+          IDLE_THREAD_TIMEOUT, TimeUnit.SECONDS, new SynchronousQueue<>());
+      virtual = false;
+    }
+    this.executor = executor;
+    this.virtual = virtual;
+    maxSessions = virtual ? Integer.MAX_VALUE : maxPlatformSessions;
+  }
+
+  /**
+   * Starts a session that reads responses from the specified source and
+   * writes the game display to the specified stream.
+   *
+   * @param input     Source of player responses.
+   * @param output    Destination of game display.
+   * @return          {@link Future} that completes when the session ends.
+   * @throws RejectedExecutionException   If the host has been closed, or
+   *                                      already hosts the maximum number of
+   *                                      sessions.
+   */
+  public Future<?> open(LineSource input, PrintWriter output) {
+    return executor.submit(() -> {
+      activeSessions.incrementAndGet();
+      try {
+        new ConsoleGame(input, output).play();
+      } finally {
+        activeSessions.decrementAndGet();
+      }
+    });
+  }
+
+  /**
+   * Accepts connections on the specified loopback port, opening a session for
+   * each, until the host is closed or the socket fails. A connection that
+   * arrives while the host is at its maximum number of sessions is closed
+   * immediately. This method blocks the calling thread.
+   *
+   * @param port    Port number.
+   * @throws IOException  If the socket cannot be opened, or fails.
+   */
+  public void serve(int port) throws IOException {
+    try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+      this.server = server;
+      while (!executor.isShutdown()) {
+        Socket socket;
+        try {
+          socket = server.accept();
+        } catch (SocketException ex) {
+          if (executor.isShutdown()) {
+            return; // Closed by close().
+          }
+          throw ex;
+        }
+        try {
+          executor.submit(() -> host(socket));
+        } catch (RejectedExecutionException ex) {
+          socket.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a flag indicating whether sessions run on virtual threads.
+   *
+   * @return    {@code true} if virtual threads are used.
+   */
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  /**
+   * Returns the number of sessions that have been opened but not yet ended.
+   *
+   * @return    active sessions
+   */
+  public int getActiveSessions() {
+    return activeSessions.get();
+  }
+
+  /**
+   * Returns the maximum number of concurrent sessions: unlimited
+   * ({@link Integer#MAX_VALUE}) with virtual threads, or the limit specified
+   * when the host was constructed with platform threads.
+   *
+   * @return    maximum sessions
+   */
+  public int getMaxSessions() {
+    return maxSessions;
+  }
+
+  /**
+   * Stops accepting new sessions (closing the socket of {@link #serve(int)},
+   * if it is running), and waits briefly for active sessions to end before
+   * abandoning them.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    ServerSocket server = this.server;
+    if (server != null) {
+      try {
+        server.close();
+      } catch (IOException ex) {
+        // Already closed; nothing to clean up.
+      }
+    }
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException ex) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void host(Socket socket) {
+    activeSessions.incrementAndGet();
+    try (socket) {
+      BufferedReader input = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      PrintWriter output = new PrintWriter(
+          new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+      new ConsoleGame(new StreamLineSource(input, output), output).play();
+    } catch (IOException ex) {
+      // Connection already closed; nothing to clean up.
+    } finally {
+      activeSessions.decrementAndGet();
+    }
+  }
+
+}
@@ -0,0 +1,484 @@
+/**
+ * SimulationCache.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class caches the results of simulations, so that repeated identical
+ * queries are answered without playing any rounds. Results are keyed by the
+ * canonical text of a {@link SimulationQuery}, and held in a map with
+ * least-recently-used eviction, bounded by a maximum number of entries.
+ * <p>
+ * If several threads request the same uncached query at once, only one of
+ * them runs the simulation; the others wait for, and share, its result.
+ * <p>
+ * For a sequential query whose dice can be checkpointed (the default and
+ * {@link DiceSource#BULK_ALGORITHM} algorithms), the cache also keeps the
+ * state of the dice at the end of the run. A later query for more rounds of
+ * the same stream (see {@link SimulationQuery#isSameStream(SimulationQuery)})
+ * then continues from the longest cached prefix, instead of starting over;
+ * since a sequential run consumes its rolls strictly in order, the result is
+ * identical to that of a run from the start. (The rounds of a parallel run
+ * are partitioned according to the total number of rounds, so parallel
+ * results cannot be extended in this way.)
+ * <p>
+ * Optionally, the cache is loaded from a file when constructed, and saved to
+ * that file (atomically, via a temporary file) by {@link #save()} and
+ * {@link #close()}. A file written in an earlier format (whose keys may not
+ * identify the rules completely) is ignored, and replaced when saved.
+ *
+ * @author Nicholas Bennett
+ */
+public class SimulationCache implements Closeable {
+
+  /** Default maximum number of entries. */
+  public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+  private static final int FILE_MAGIC = 0x43524343;
+  private static final byte FILE_VERSION = 2;
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final int DEFAULT_ROUNDS = 10_000_000;
+  private static final int DEMO_THREADS = 8;
+  private static final String STATISTICS_FORMAT =
+      "hits = %d; prefix hits = %d; misses = %d; shared = %d; entries = %d";
+  private static final String DEMO_FORMAT = "%-40s %8.3f s  %s%n";
+
+  private final int maxEntries;
+  private final Path file;
+  private final Map<String, Entry> entries;
+  private final ConcurrentMap<String, CompletableFuture<Entry>> pending =
+      new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder prefixHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder shared = new LongAdder();
+
+  /**
+   * Demonstrates the cache: a query is run, repeated, extended to twice as
+   * many rounds, and requested by several threads at once; then the cache is
+   * saved and reloaded. Prints the time taken for each step, and exits with
+   * status 1 if any result differs from that of an uncached run.
+   *
+   * @param args  Command-line arguments: number of rounds (optional, default
+   *              10,000,000), seed (optional, default 42), and cache file
+   *              (optional).
+   * @throws IOException    If the cache file cannot be read or written.
+   * @throws InterruptedException   If interrupted while waiting for the
+   *                                concurrent queries.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    long rounds = (args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_ROUNDS;
+    long seed = (args.length > 1) ? Long.parseLong(args[1]) : 42;
+    Path file = (args.length > 2) ? Paths.get(args[2]) : null;
+    SimulationQuery query = new SimulationQuery(RuleTable.PASS_LINE, seed, rounds, false);
+    SimulationQuery extended = query.withRounds(2 * rounds);
+    SimulationQuery parallel = new SimulationQuery(RuleTable.PASS_LINE, seed, rounds, true);
+    boolean consistent = true;
+    try (SimulationCache cache = new SimulationCache(DEFAULT_MAX_ENTRIES, file)) {
+      consistent &= demo(cache, "first query", query);
+      consistent &= demo(cache, "repeated query", query);
+      consistent &= demo(cache, "extended query (prefix reuse)", extended);
+      long start = System.nanoTime();
+      ExecutorService executor = Executors.newFixedThreadPool(DEMO_THREADS);
+      List<Future<SimulationResult>> futures = new ArrayList<>();
+      for (int i = 0; i < DEMO_THREADS; i++) {
+        futures.add(executor.submit(() -> cache.get(parallel)));
+      }
+      SimulationResult result = null;
+      for (Future<SimulationResult> future : futures) {
+        try {
+          result = future.get();
+        } catch (ExecutionException ex) {
+          throw new IllegalStateException(ex.getCause());
+        }
+      }
+      executor.shutdown();
+      System.out.printf(DEMO_FORMAT, DEMO_THREADS + " concurrent parallel queries",
+          (System.nanoTime() - start) / 1e9, result);
+      consistent &= result.toString().equals(parallel.run(parallel.createSimulator(),
+          parallel.getRounds()).toString());
+      System.out.println(cache);
+    }
+    if (file != null) {
+      try (SimulationCache reloaded = new SimulationCache(DEFAULT_MAX_ENTRIES, file)) {
+        consistent &= demo(reloaded, "extended query (reloaded)", extended);
+        System.out.println(reloaded);
+      }
+    }
+    if (!consistent) {
+      System.out.println("A cached result differs from an uncached run.");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Initializes an empty cache, held only in memory, with the default maximum
+   * number of entries.
+   */
+  public SimulationCache() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * Initializes an empty cache, held only in memory.
+   *
+   * @param maxEntries    Maximum number of entries.
+   * @throws IllegalArgumentException   If {@code maxEntries} is not positive.
+   */
+  public SimulationCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+    file = null;
+    entries = createMap(maxEntries);
+  }
+
+  /**
+   * Initializes a cache that is persisted to the specified file, loading the
+   * entries in the file, if it exists.
+   *
+   * @param maxEntries    Maximum number of entries.
+   * @param file          Cache file, or {@code null} for a cache held only in
+   *                      memory.
+   * @throws IllegalArgumentException   If {@code maxEntries} is not positive.
+   * @throws IOException    If the file exists, but cannot be read, or is not
+   *                        a cache file.
+   */
+  public SimulationCache(int maxEntries, Path file) throws IOException {
+    this.maxEntries = maxEntries;
+    this.file = file;
+    entries = createMap(maxEntries);
+    if (file != null && Files.exists(file)) {
+      load(file);
+    }
+  }
+
+  /**
+   * Returns the result of the specified query, from the cache if possible;
+   * otherwise, runs the simulation (continuing a cached prefix, if there is
+   * one), or waits for an identical query already running in another thread.
+   *
+   * @param query   Simulation query.
+   * @return        Tallies of wins, losses, pushes, and rolls.
+   */
+  public SimulationResult get(SimulationQuery query) {
+    String key = query.toString();
+    Entry entry = lookup(key);
+    if (entry != null) {
+      hits.increment();
+      return entry.result;
+    }
+    CompletableFuture<Entry> future = new CompletableFuture<>();
+    CompletableFuture<Entry> running = pending.putIfAbsent(key, future);
+    if (running != null) {
+      shared.increment();
+      try {
+        return running.join().result;
+      } catch (CompletionException ex) {
+        throw (ex.getCause() instanceof RuntimeException)
+            ? (RuntimeException) ex.getCause()
+            : ex;
+      }
+    }
+    try {
+      // Another thread may have completed this query since the lookup above.
+      entry = lookup(key);
+      if (entry != null) {
+        hits.increment();
+      } else {
+        entry = compute(query);
+        synchronized (entries) {
+          entries.put(key, entry);
+        }
+      }
+      future.complete(entry);
+      return entry.result;
+    } catch (RuntimeException | Error ex) {
+      future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      pending.remove(key, future);
+    }
+  }
+
+  /**
+   * Returns the number of entries currently cached.
+   *
+   * @return    entries
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Discards all cached entries.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * Returns the number of queries answered directly from the cache.
+   *
+   * @return    hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of queries answered by continuing a cached prefix.
+   *
+   * @return    prefix hits
+   */
+  public long getPrefixHits() {
+    return prefixHits.sum();
+  }
+
+  /**
+   * Returns the number of queries simulated from the start.
+   *
+   * @return    misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of queries answered by waiting for an identical query
+   * running in another thread.
+   *
+   * @return    shared queries
+   */
+  public long getShared() {
+    return shared.sum();
+  }
+
+  /**
+   * Writes all cached entries to the cache file, if there is one, replacing
+   * its previous contents atomically.
+   *
+   * @throws IOException    If the file cannot be written.
+   */
+  public void save() throws IOException {
+    if (file == null) {
+      return;
+    }
+    List<Entry> snapshot;
+    synchronized (entries) {
+      snapshot = new ArrayList<>(entries.values());
+    }
+    Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(FILE_MAGIC);
+      out.writeByte(FILE_VERSION);
+      out.writeInt(snapshot.size());
+      for (Entry entry : snapshot) {
+        entry.write(out);
+      }
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Saves the cache to the cache file, if there is one.
+   *
+   * @throws IOException    If the file cannot be written.
+   */
+  @Override
+  public void close() throws IOException {
+    save();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(STATISTICS_FORMAT, getHits(), getPrefixHits(), getMisses(),
+        getShared(), size());
+  }
+
+  private static Map<String, Entry> createMap(int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("Maximum number of entries must be positive.");
+    }
+    return new LinkedHashMap<>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 6410391520367117357L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+
+    };
+  }
+
+  private Entry lookup(String key) {
+    synchronized (entries) {
+      return entries.get(key);
+    }
+  }
+
+  /**
+   * Runs the specified query, continuing from the longest cached prefix of the
+   * same stream, if there is one, and returns a new entry for it.
+   */
+  private Entry compute(SimulationQuery query) {
+    String stream = query.getStreamKey();
+    Simulator simulator = query.createSimulator();
+    SimulationResult total = new SimulationResult(0, 0, 0);
+    long done = 0;
+    if (!query.isParallel()) {
+      Entry prefix = null;
+      synchronized (entries) {
+        for (Entry candidate : entries.values()) {
+          if (candidate.state != null && candidate.stream.equals(stream)
+              && candidate.rounds <= query.getRounds()
+              && (prefix == null || candidate.rounds > prefix.rounds)) {
+            prefix = candidate;
+          }
+        }
+      }
+      if (prefix != null) {
+        try {
+          simulator.restoreState(new DataInputStream(new ByteArrayInputStream(prefix.state)));
+          total = prefix.result;
+          done = prefix.rounds;
+        } catch (IOException ex) {
+          // Corrupt state; simulate from the start.
+          simulator = query.createSimulator();
+        }
+      }
+    }
+    if (done > 0) {
+      prefixHits.increment();
+    } else {
+      misses.increment();
+    }
+    total = total.add(query.run(simulator, query.getRounds() - done));
+    byte[] state = null;
+    if (!query.isParallel()) {
+      try {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        simulator.saveState(new DataOutputStream(bytes));
+        state = bytes.toByteArray();
+      } catch (UnsupportedOperationException ex) {
+        // The dice cannot be checkpointed, so this run cannot be continued.
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+    return new Entry(query.toString(), stream, query.getRounds(), total, state);
+  }
+
+  private void load(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != FILE_MAGIC) {
+        throw new IOException("Not a simulation cache file.");
+      }
+      if (in.readByte() != FILE_VERSION) {
+        return; // Earlier format; start empty.
+      }
+      int count = in.readInt();
+      synchronized (entries) {
+        for (int i = 0; i < count; i++) {
+          Entry entry = Entry.read(in);
+          entries.put(entry.key, entry);
+        }
+      }
+    }
+  }
+
+  private static boolean demo(SimulationCache cache, String label, SimulationQuery query) {
+    long start = System.nanoTime();
+    SimulationResult result = cache.get(query);
+    System.out.printf(DEMO_FORMAT, label, (System.nanoTime() - start) / 1e9, result);
+    SimulationResult expected = query.run(query.createSimulator(), query.getRounds());
+    return result.toString().equals(expected.toString());
+  }
+
+  /**
+   * Cached result of a query, with the state of the dice at the end of the
+   * run, if it can be continued.
+   */
+  private static class Entry {
+
+    private final String key;
+    private final String stream;
+    private final long rounds;
+    private final SimulationResult result;
+    private final byte[] state;
+
+    private Entry(String key, String stream, long rounds, SimulationResult result,
+        byte[] state) {
+      this.key = key;
+      this.stream = stream;
+      this.rounds = rounds;
+      this.result = result;
+      this.state = state;
+    }
+
+    private static Entry read(DataInputStream in) throws IOException {
+      String key = in.readUTF();
+      String stream = in.readUTF();
+      long rounds = in.readLong();
+      SimulationResult result =
+          new SimulationResult(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+      int length = in.readInt();
+      byte[] state = null;
+      if (length >= 0) {
+        state = new byte[length];
+        in.readFully(state);
+      }
+      return new Entry(key, stream, rounds, result, state);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeUTF(key);
+      out.writeUTF(stream);
+      out.writeLong(rounds);
+      out.writeLong(result.getWins());
+      out.writeLong(result.getLosses());
+      out.writeLong(result.getPushes());
+      out.writeLong(result.getRolls());
+      if (state != null) {
+        out.writeInt(state.length);
+        out.write(state);
+      } else {
+        out.writeInt(-1);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,197 @@
+/**
+ * SimulationQuery.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.util.Objects;
+
+/**
+ * Immutable, canonical description of a deterministic simulation: the rules
+ * (strategy), the dice algorithm and seed, the number of rounds, and whether
+ * the rounds are played sequentially ({@link Simulator#run(long)}) or in
+ * parallel ({@link Simulator#runParallel(long)}). Two queries are equal only
+ * if they produce the same result, so a query can serve as the key of a
+ * {@link SimulationCache}; {@link #toString()} returns the canonical key as
+ * text. The rules are identified by their name together with the complete
+ * contents of their {@link RuleTable}, so that distinct tables constructed
+ * with the same name are never confused.
+ *
+ * @author Nicholas Bennett
+ */
+public final class SimulationQuery {
+
+  /**
+   * Name of the default dice algorithm, which selects
+   * {@link DiceSource#splittable(long)}, as used by
+   * {@link Simulator#Simulator(long)}.
+   */
+  public static final String DEFAULT_ALGORITHM = DiceSource.SPLITTABLE_ALGORITHM;
+
+  private static final String STREAM_FORMAT = "rules=%s/%s;dice=%s;seed=%d;mode=%s";
+  private static final String FORMAT = "%s;rounds=%d";
+  private static final String SEQUENTIAL = "sequential";
+  private static final String PARALLEL = "parallel";
+
+  private final RuleTable rules;
+  private final String algorithm;
+  private final long seed;
+  private final long rounds;
+  private final boolean parallel;
+
+  /**
+   * Initializes a query for the default dice algorithm.
+   *
+   * @param rules       Rules of the variant.
+   * @param seed        Seed value.
+   * @param rounds      Number of rounds.
+   * @param parallel    Flag selecting a parallel run.
+   * @throws IllegalArgumentException   If {@code rounds} is negative.
+   */
+  public SimulationQuery(RuleTable rules, long seed, long rounds, boolean parallel) {
+    this(rules, DEFAULT_ALGORITHM, seed, rounds, parallel);
+  }
+
+  /**
+   * Initializes a query.
+   *
+   * @param rules       Rules of the variant.
+   * @param algorithm   Name of dice algorithm: {@link #DEFAULT_ALGORITHM},
+   *                    {@link DiceSource#BULK_ALGORITHM}, or the name of a
+   *                    {@link java.util.random.RandomGenerator} algorithm.
+   * @param seed        Seed value.
+   * @param rounds      Number of rounds.
+   * @param parallel    Flag selecting a parallel run.
+   * @throws IllegalArgumentException   If {@code rounds} is negative.
+   */
+  public SimulationQuery(RuleTable rules, String algorithm, long seed, long rounds,
+      boolean parallel) {
+    if (rounds < 0) {
+      throw new IllegalArgumentException("Number of rounds must not be negative.");
+    }
+    this.rules = Objects.requireNonNull(rules);
+    this.algorithm = Objects.requireNonNull(algorithm);
+    this.seed = seed;
+    this.rounds = rounds;
+    this.parallel = parallel;
+  }
+
+  /**
+   * Returns the rules of the variant.
+   *
+   * @return    rules
+   */
+  public RuleTable getRules() {
+    return rules;
+  }
+
+  /**
+   * Returns the name of the dice algorithm.
+   *
+   * @return    algorithm
+   */
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  /**
+   * Returns the seed value.
+   *
+   * @return    seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns the number of rounds.
+   *
+   * @return    rounds
+   */
+  public long getRounds() {
+    return rounds;
+  }
+
+  /**
+   * Returns a flag indicating whether the rounds are played in parallel.
+   *
+   * @return    {@code true} for a parallel run.
+   */
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  /**
+   * Returns a query identical to this one, except for the number of rounds.
+   *
+   * @param rounds    Number of rounds.
+   * @return          Query.
+   */
+  public SimulationQuery withRounds(long rounds) {
+    return new SimulationQuery(rules, algorithm, seed, rounds, parallel);
+  }
+
+  /**
+   * Returns {@code true} if the specified query differs from this one at
+   * most in the number of rounds, so that, for sequential runs, the shorter
+   * of the two runs is a prefix of the longer.
+   *
+   * @param other   Query to compare.
+   * @return        {@code true} if the queries describe the same stream of
+   *                rounds.
+   */
+  public boolean isSameStream(SimulationQuery other) {
+    return rules.getName().equals(other.rules.getName())
+        && rules.getEncoding().equals(other.rules.getEncoding())
+        && algorithm.equals(other.algorithm)
+        && seed == other.seed
+        && parallel == other.parallel;
+  }
+
+  /**
+   * Returns the canonical key of the stream of rounds described by this
+   * query, i.e. of all queries for which {@link #isSameStream(SimulationQuery)}
+   * returns {@code true}.
+   */
+  String getStreamKey() {
+    return String.format(STREAM_FORMAT, rules.getName(), rules.getEncoding(), algorithm, seed,
+        parallel ? PARALLEL : SEQUENTIAL);
+  }
+
+  /**
+   * Creates a simulator with the rules and freshly seeded dice of this query.
+   */
+  Simulator createSimulator() {
+    return new Simulator(DiceSource.of(algorithm, seed), rules);
+  }
+
+  /**
+   * Plays the specified number of rounds with the specified simulator,
+   * sequentially or in parallel, as specified by this query.
+   */
+  SimulationResult run(Simulator simulator, long rounds) {
+    return parallel ? simulator.runParallel(rounds) : simulator.run(rounds);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof SimulationQuery)) {
+      return false;
+    }
+    SimulationQuery other = (SimulationQuery) obj;
+    return rounds == other.rounds && isSameStream(other);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(rules.getName(), rules.getEncoding(), algorithm, seed, rounds, parallel);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(FORMAT, getStreamKey(), rounds);
+  }
+
+}
@@ -0,0 +1,180 @@
+/**
+ * SimulationResult.java
+ */
+package edu.cnm.deepdive.craps;
+
+/**
+ * Immutable aggregate of the rounds played by a {@link Simulator} run: tallies
+ * of wins, losses, and pushes, and the total number of rolls required to
+ * resolve those rounds.
+ *
+ * @author Nicholas Bennett
+ */
+public class SimulationResult {
+
+  private static final String FORMAT =
+      "rounds = %d; wins = %d; losses = %d; pushes = %d; net = %d; return = %3.4f%%; "
+      + "rolls/round = %.4f";
+
+  private final long wins;
+  private final long losses;
+  private final long pushes;
+  private final long rolls;
+
+  /**
+   * Initializes the result with the specified tallies, and no pushes.
+   *
+   * @param wins      Rounds won.
+   * @param losses    Rounds lost.
+   * @param rolls     Total dice rolls over all rounds.
+   */
+  public SimulationResult(long wins, long losses, long rolls) {
+    this(wins, losses, 0, rolls);
+  }
+
+  /**
+   * Initializes the result with the specified tallies.
+   *
+   * @param wins      Rounds won.
+   * @param losses    Rounds lost.
+   * @param pushes    Rounds resolved with the bet returned.
+   * @param rolls     Total dice rolls over all rounds.
+   */
+  public SimulationResult(long wins, long losses, long pushes, long rolls) {
+    this.wins = wins;
+    this.losses = losses;
+    this.pushes = pushes;
+    this.rolls = rolls;
+  }
+
+  /**
+   * Returns the tally of rounds won.
+   *
+   * @return    wins
+   */
+  public long getWins() {
+    return wins;
+  }
+
+  /**
+   * Returns the tally of rounds lost.
+   *
+   * @return    losses
+   */
+  public long getLosses() {
+    return losses;
+  }
+
+  /**
+   * Returns the tally of rounds resolved as a push.
+   *
+   * @return    pushes
+   */
+  public long getPushes() {
+    return pushes;
+  }
+
+  /**
+   * Returns the number of rounds played to completion.
+   *
+   * @return    rounds
+   */
+  public long getRounds() {
+    return wins + losses + pushes;
+  }
+
+  /**
+   * Returns the total number of dice rolls over all rounds.
+   *
+   * @return    rolls
+   */
+  public long getRolls() {
+    return rolls;
+  }
+
+  /**
+   * Returns the net result of unit line bets, i.e. wins less losses.
+   *
+   * @return    net
+   */
+  public long getNet() {
+    return wins - losses;
+  }
+
+  /**
+   * Returns the net return per unit wagered, computed in the same manner as the
+   * summary of {@link ConsoleGame} (with each push counted as a unit wagered).
+   * If no rounds were played, the return is zero.
+   *
+   * @return    net return rate
+   */
+  public double getReturnRate() {
+    long rounds = getRounds();
+    return (rounds > 0) ? (double) getNet() / rounds : 0;
+  }
+
+  /**
+   * Returns the variance of the return per round of a unit line bet. Since
+   * the return of a round is 1, -1, or 0, the sums of the returns and of their
+   * squares are simply the net and the number of decided rounds, and are
+   * exact. If no rounds were played, zero is returned.
+   *
+   * @return    variance of return per round
+   */
+  public double getReturnVariance() {
+    long rounds = getRounds();
+    if (rounds == 0) {
+      return 0;
+    }
+    double mean = getReturnRate();
+    return (double) (wins + losses) / rounds - mean * mean;
+  }
+
+  /**
+   * Returns the half-width of a normal-approximation confidence interval for
+   * the expected return per round, centered on {@link #getReturnRate()}. If
+   * no rounds were played, {@link Double#POSITIVE_INFINITY} is returned.
+   *
+   * @param confidence    Confidence level, in {@code (0, 1)} (e.g. 0.99).
+   * @return              Half-width of interval.
+   */
+  public double getReturnHalfWidth(double confidence) {
+    long rounds = getRounds();
+    if (rounds == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return LiveStatistics.normalQuantile(0.5 + confidence / 2)
+        * Math.sqrt(getReturnVariance() / rounds);
+  }
+
+  /**
+   * Returns the mean number of rolls required to resolve a round. If no rounds
+   * were played, zero is returned.
+   *
+   * @return    rolls per round
+   */
+  public double getRollsPerRound() {
+    long rounds = getRounds();
+    return (rounds > 0) ? (double) rolls / rounds : 0;
+  }
+
+  /**
+   * Returns a new result combining the tallies of this instance with those of
+   * the specified instance. Since the tallies are simply summed, the combined
+   * result does not depend on the order in which partial results are merged.
+   *
+   * @param other   Result to combine with this one.
+   * @return        Combined result.
+   */
+  public SimulationResult add(SimulationResult other) {
+    return new SimulationResult(wins + other.wins, losses + other.losses,
+        pushes + other.pushes, rolls + other.rolls);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(FORMAT, getRounds(), wins, losses, pushes, getNet(),
+        100 * getReturnRate(), getRollsPerRound());
+  }
+
+}
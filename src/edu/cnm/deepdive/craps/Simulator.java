@@ -0,0 +1,826 @@
+/**
+ * Simulator.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class implements a headless bulk simulation of line bet rounds, using
+ * the same {@link RuleTable} lookups as {@link StateMachine#play()}. Unlike
+ * {@link StateMachine}, no callbacks are invoked and no roll arrays are
+ * created: every round is played to completion (i.e. the shooter never walks
+ * away from a point), and only the aggregate tallies are kept. This makes it
+ * suitable for high-volume Monte Carlo estimation of line bet statistics.
+ * <p>
+ * An instance of this class is not thread-safe; however, a single invocation
+ * of {@link #runParallel(long, ForkJoinPool)} spreads the work of a large
+ * simulation over all of the threads of a {@link ForkJoinPool}.
+ *
+ * @author Nicholas Bennett
+ */
+public class Simulator {
+
+  /**
+   * Number of rounds played by each unit of parallel work. The partitioning
+   * of a parallel run into chunks of this size, and the assignment of
+   * {@link DiceSource} streams to those chunks, depend only on the number of
+   * rounds requested; this is what makes the result of a parallel run
+   * independent of the number of threads used.
+   */
+  public static final int CHUNK_ROUNDS = 1 << 16;
+
+  private static final long DEFAULT_ROUNDS = 100_000_000L;
+  private static final String PARALLEL_OPTION = "--parallel";
+  private static final String LOG_OPTION = "--log";
+  private static final String CHECKPOINT_OPTION = "--checkpoint";
+  private static final String STATS_OPTION = "--stats";
+  private static final String PRECISION_OPTION = "--precision";
+  private static final String CONFIDENCE_OPTION = "--confidence";
+  private static final double DEFAULT_CONFIDENCE = 0.99;
+  private static final long MIN_BATCH_ROUNDS = 16L * CHUNK_ROUNDS;
+  private static final String PRECISION_FORMAT = "half-width = %.4f%% at %.4g%% confidence%n";
+  private static final String HISTOGRAMS_FORMAT =
+      "sums = %s%npoints = %s%nrolls/round = %s%n";
+  private static final Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofSeconds(30);
+  private static final int CHECKPOINT_MAGIC = 0x43525349;
+  private static final byte CHECKPOINT_VERSION = 1;
+  private static final byte SEQUENTIAL_MODE = 0;
+  private static final byte PARALLEL_MODE = 1;
+  private static final SimulationResult EMPTY = new SimulationResult(0, 0, 0);
+
+  private final DiceSource dice;
+  private final RollBuffer buffer;
+  private final RuleTable rules;
+  private EventLogWriter eventLog;
+  private Path checkpointFile;
+  private long checkpointInterval;
+  private LiveStatistics statistics;
+
+  /**
+   * Runs a bulk simulation from the command line, printing the aggregate
+   * result in the same form as the {@link ConsoleGame} summary.
+   *
+   * @param args  Command-line arguments: {@code --parallel} (optional, to
+   *              use all available processors) or {@code --log} followed by
+   *              a file name (optional, to record every roll and round in an
+   *              event log) or {@code --checkpoint} followed by a file
+   *              name (optional, to checkpoint the run every 30 seconds, or
+   *              to resume it from the file, if it exists) or {@code --stats}
+   *              (optional, to print live statistics every second) or
+   *              {@code --precision} followed by a half-width in percent
+   *              (optional, to run in parallel until the return is known to
+   *              within that half-width; see
+   *              {@link #runToPrecision(double, double, long, ForkJoinPool)})
+   *              or {@code --confidence} followed by the confidence level for
+   *              {@code --precision} (optional, default 0.99), number of
+   *              rounds (optional, default 100,000,000, or, with
+   *              {@code --precision}, unlimited), seed (optional), and name of
+   *              {@link java.util.random.RandomGenerator} algorithm (optional,
+   *              default {@code SplittableRandom}).
+   * @throws IOException  If the event log cannot be written, or the
+   *                      checkpoint cannot be read.
+   */
+  public static void main(String[] args) throws IOException {
+    boolean parallel = false;
+    String logFile = null;
+    String checkpointFile = null;
+    boolean stats = false;
+    double precision = 0;
+    double confidence = DEFAULT_CONFIDENCE;
+    int next = 0;
+    for (; next < args.length && args[next].startsWith("--"); next++) {
+      if (args[next].equals(PARALLEL_OPTION)) {
+        parallel = true;
+      } else if (args[next].equals(LOG_OPTION) && next + 1 < args.length) {
+        logFile = args[++next];
+      } else if (args[next].equals(CHECKPOINT_OPTION) && next + 1 < args.length) {
+        checkpointFile = args[++next];
+      } else if (args[next].equals(STATS_OPTION)) {
+        stats = true;
+      } else if (args[next].equals(PRECISION_OPTION) && next + 1 < args.length) {
+        precision = Double.parseDouble(args[++next]) / 100;
+      } else if (args[next].equals(CONFIDENCE_OPTION) && next + 1 < args.length) {
+        confidence = Double.parseDouble(args[++next]);
+      } else {
+        throw new IllegalArgumentException(String.format("Invalid option: %s.", args[next]));
+      }
+    }
+    if (parallel && logFile != null) {
+      throw new IllegalArgumentException("A parallel run cannot be logged.");
+    }
+    if (precision > 0 && (logFile != null || checkpointFile != null)) {
+      throw new IllegalArgumentException("An adaptive run cannot be logged or checkpointed.");
+    }
+    args = Arrays.copyOfRange(args, next, args.length);
+    long rounds = (args.length > 0)
+        ? Long.parseLong(args[0])
+        : (precision > 0) ? Long.MAX_VALUE : DEFAULT_ROUNDS;
+    Simulator simulator;
+    if (args.length > 2) {
+      simulator = new Simulator(DiceSource.of(args[2], Long.parseLong(args[1])));
+    } else if (args.length > 1) {
+      simulator = new Simulator(Long.parseLong(args[1]));
+    } else {
+      simulator = new Simulator();
+    }
+    LiveStatistics statistics = stats ? new LiveStatistics() : null;
+    ScheduledExecutorService reporter = null;
+    if (statistics != null) {
+      simulator.setStatistics(statistics);
+      reporter = Executors.newSingleThreadScheduledExecutor((task) -> {
+        Thread thread = new Thread(task, "statistics-reporter");
+        thread.setDaemon(true);
+        return thread;
+      });
+      reporter.scheduleAtFixedRate(() -> System.out.println(statistics), 1, 1, TimeUnit.SECONDS);
+    }
+    long start = System.nanoTime();
+    SimulationResult result;
+    try (EventLogWriter log = (logFile != null) ? new EventLogWriter(Paths.get(logFile)) : null) {
+      if (log != null && args.length > 1) {
+        log.session(System.currentTimeMillis(), Long.parseLong(args[1]),
+            (args.length > 2) ? args[2] : EventLog.DEFAULT_ALGORITHM, RuleTable.PASS_LINE);
+      }
+      simulator.setEventLog(log);
+      if (checkpointFile != null) {
+        simulator.setCheckpoint(Paths.get(checkpointFile), DEFAULT_CHECKPOINT_INTERVAL);
+      }
+      if (precision > 0) {
+        result = simulator.runToPrecision(
+            precision, confidence, rounds, ForkJoinPool.commonPool());
+      } else if (checkpointFile != null && Files.exists(simulator.getCheckpointFile())) {
+        result = simulator.resume();
+      } else {
+        result = parallel ? simulator.runParallel(rounds) : simulator.run(rounds);
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    if (reporter != null) {
+      reporter.shutdownNow();
+      System.out.println(statistics);
+      System.out.printf(HISTOGRAMS_FORMAT, Arrays.toString(statistics.getSumHistogram()),
+          Arrays.toString(statistics.getPointHistogram()),
+          Arrays.toString(statistics.getRollsHistogram()));
+    }
+    System.out.println(result);
+    if (precision > 0) {
+      System.out.printf(PRECISION_FORMAT, 100 * result.getReturnHalfWidth(confidence),
+          100 * confidence);
+    }
+    System.out.printf("elapsed = %.3f s%n", elapsed / 1e9);
+  }
+
+  /**
+   * Initializes the simulator with an unseeded {@link DiceSource} backed by
+   * {@link java.util.SplittableRandom}, and the standard pass line rules.
+   */
+  public Simulator() {
+    this(DiceSource.splittable());
+  }
+
+  /**
+   * Initializes the simulator with a deterministically seeded
+   * {@link DiceSource} backed by {@link java.util.SplittableRandom}, and the
+   * standard pass line rules; two
+   * simulators created with the same seed will produce identical results for
+   * the same sequence of {@link #run(long)} invocations.
+   *
+   * @param seed    Seed value.
+   */
+  public Simulator(long seed) {
+    this(DiceSource.splittable(seed));
+  }
+
+  /**
+   * Initializes the simulator with the specified source of dice rolls, and the
+   * standard pass line rules.
+   *
+   * @param dice    Source of dice rolls.
+   */
+  public Simulator(DiceSource dice) {
+    this(dice, RuleTable.PASS_LINE);
+  }
+
+  /**
+   * Initializes the simulator with the specified source of dice rolls and
+   * rules.
+   *
+   * @param dice    Source of dice rolls.
+   * @param rules   Rules of the variant to simulate.
+   */
+  public Simulator(DiceSource dice, RuleTable rules) {
+    this.dice = dice;
+    this.rules = rules;
+    buffer = new RollBuffer(dice);
+  }
+
+  /**
+   * Plays the specified number of complete rounds, and returns the aggregate
+   * tallies.
+   *
+   * @param rounds    Number of rounds to play.
+   * @return          Tallies of wins, losses, pushes, and rolls.
+   * @throws IllegalArgumentException   If {@code rounds} is negative.
+   * @throws UncheckedIOException   If a checkpoint file is set, and a
+   *                                checkpoint cannot be written.
+   * @throws UnsupportedOperationException    If a checkpoint file is set, and
+   *                                          the {@link DiceSource} of this
+   *                                          instance cannot be
+   *                                          checkpointed.
+   */
+  public SimulationResult run(long rounds) {
+    validate(rounds);
+    if (checkpointFile != null || statistics != null) {
+      return runChunked(rounds, 0, EMPTY);
+    }
+    return (eventLog != null)
+        ? play(buffer, rules, rounds, eventLog, null)
+        : play(buffer, rules, rounds);
+  }
+
+  /**
+   * Plays the specified number of complete rounds in parallel, using the
+   * common {@link ForkJoinPool}, and returns the aggregate tallies.
+   *
+   * @param rounds    Number of rounds to play.
+   * @return          Tallies of wins, losses, pushes, and rolls.
+   * @throws IllegalArgumentException   If {@code rounds} is negative.
+   * @see #runParallel(long, ForkJoinPool)
+   */
+  public SimulationResult runParallel(long rounds) {
+    return runParallel(rounds, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Plays the specified number of complete rounds in parallel, using the
+   * specified {@link ForkJoinPool}, and returns the aggregate tallies.
+   * <p>
+   * The rounds are partitioned into chunks of {@link #CHUNK_ROUNDS}; each
+   * chunk is played with its own stream, obtained by a fixed tree of
+   * {@link DiceSource#split()} invocations, and keeps its own tallies, which
+   * are summed as the chunks complete. For a deterministically seeded source,
+   * the result therefore depends only on the seed and on {@code rounds}, and
+   * not on the parallelism of {@code pool}. (It does, however, differ from the
+   * result of {@link #run(long)} for the same seed.)
+   *
+   * @param rounds    Number of rounds to play.
+   * @param pool      Pool of worker threads.
+   * @return          Tallies of wins, losses, pushes, and rolls.
+   * @throws IllegalArgumentException   If {@code rounds} is negative.
+   * @throws IllegalStateException    If an event log is set; the events of a
+   *                                  parallel run have no single order.
+   * @throws UncheckedIOException   If a checkpoint file is set, and a
+   *                                checkpoint cannot be written.
+   * @throws UnsupportedOperationException    If the {@link DiceSource} of this
+   *                                          instance cannot be split (or, if
+   *                                          a checkpoint file is set,
+   *                                          checkpointed).
+   */
+  public SimulationResult runParallel(long rounds, ForkJoinPool pool) {
+    validate(rounds);
+    if (eventLog != null) {
+      throw new IllegalStateException("A parallel run cannot be logged.");
+    }
+    long chunks = (rounds + CHUNK_ROUNDS - 1) / CHUNK_ROUNDS;
+    DiceSource root = dice.split();
+    if (checkpointFile != null) {
+      return runCheckpointed(pool, root, new Progress(rules, rounds, chunks, null, EMPTY));
+    }
+    return pool.invoke(new ChunkTask(root, rules, 0, chunks, rounds, null, statistics));
+  }
+
+  /**
+   * Plays rounds in parallel, using the common {@link ForkJoinPool}, until
+   * the expected return per round is known to within the specified
+   * half-width at the specified confidence level, and returns the aggregate
+   * tallies.
+   *
+   * @param halfWidth     Target half-width of confidence interval for the
+   *                      return (e.g. 0.0001 for &plusmn;0.01%).
+   * @param confidence    Confidence level, in {@code (0, 1)} (e.g. 0.99).
+   * @return              Tallies of wins, losses, pushes, and rolls.
+   * @see #runToPrecision(double, double, long, ForkJoinPool)
+   */
+  public SimulationResult runToPrecision(double halfWidth, double confidence) {
+    return runToPrecision(halfWidth, confidence, Long.MAX_VALUE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Plays rounds in parallel, using the specified {@link ForkJoinPool}, until
+   * the expected return per round is known to within the specified
+   * half-width at the specified confidence level (see
+   * {@link SimulationResult#getReturnHalfWidth(double)}), or until the
+   * specified number of rounds has been played, and returns the aggregate
+   * tallies.
+   * <p>
+   * The rounds are played in batches of whole chunks, each partitioned among
+   * the workers as by {@link #runParallel(long, ForkJoinPool)}. The tallies of
+   * the chunks are exact integer sums, which determine the running mean and
+   * variance of the return regardless of the order in which the chunks
+   * complete; after each batch, the run stops if the target has been met.
+   * Otherwise, the size of the next batch is the number of rounds the current
+   * variance estimate projects are still required (at least 16 chunks, and at
+   * most the number played so far), so a run overshoots the target by little
+   * more than the rounding to whole chunks. The sequence of batches depends
+   * only on their results, so for a deterministically seeded source, the
+   * result depends only on the seed and the arguments.
+   *
+   * @param halfWidth     Target half-width of confidence interval for the
+   *                      return (e.g. 0.0001 for &plusmn;0.01%).
+   * @param confidence    Confidence level, in {@code (0, 1)} (e.g. 0.99).
+   * @param maxRounds     Largest number of rounds to play.
+   * @param pool          Pool of worker threads.
+   * @return              Tallies of wins, losses, pushes, and rolls.
+   * @throws IllegalArgumentException   If {@code halfWidth} is not positive,
+   *                                    {@code confidence} is not in
+   *                                    {@code (0, 1)}, or {@code maxRounds}
+   *                                    is negative.
+   * @throws IllegalStateException    If an event log or checkpoint file is
+   *                                  set.
+   * @throws UnsupportedOperationException    If the {@link DiceSource} of this
+   *                                          instance cannot be split.
+   */
+  public SimulationResult runToPrecision(double halfWidth, double confidence, long maxRounds,
+      ForkJoinPool pool) {
+    validate(maxRounds);
+    if (!(halfWidth > 0)) {
+      throw new IllegalArgumentException("Half-width must be positive.");
+    }
+    if (!(confidence > 0 && confidence < 1)) {
+      throw new IllegalArgumentException("Confidence level must be in (0, 1).");
+    }
+    if (eventLog != null || checkpointFile != null) {
+      throw new IllegalStateException("An adaptive run cannot be logged or checkpointed.");
+    }
+    double scale = LiveStatistics.normalQuantile(0.5 + confidence / 2) / halfWidth;
+    SimulationResult total = EMPTY;
+    long batch = MIN_BATCH_ROUNDS;
+    while (total.getRounds() < maxRounds) {
+      long rounds = Math.min(batch, maxRounds - total.getRounds());
+      long chunks = (rounds + CHUNK_ROUNDS - 1) / CHUNK_ROUNDS;
+      total = total.add(
+          pool.invoke(new ChunkTask(dice.split(), rules, 0, chunks, rounds, null, statistics)));
+      if (total.getReturnHalfWidth(confidence) <= halfWidth) {
+        break;
+      }
+      double required = total.getReturnVariance() * scale * scale;
+      long remaining = (long) Math.ceil(required) - total.getRounds();
+      batch = Math.max(MIN_BATCH_ROUNDS, Math.min(remaining, total.getRounds()));
+      batch = (batch + CHUNK_ROUNDS - 1) / CHUNK_ROUNDS * CHUNK_ROUNDS;
+    }
+    return total;
+  }
+
+  /**
+   * Resumes the run recorded in the checkpoint file (see
+   * {@link #setCheckpoint(Path, Duration)}), continuing to checkpoint it, and
+   * returns the aggregate tallies of the complete run. The dice of this
+   * instance are restored to their checkpointed state, so the result is
+   * identical to that of an uninterrupted run. A sequential run is resumed
+   * sequentially; a parallel run is resumed in the common
+   * {@link ForkJoinPool}. (An event log, if set, receives only the rounds
+   * played after the checkpoint.)
+   *
+   * @return    Tallies of wins, losses, pushes, and rolls.
+   * @throws IOException    If the checkpoint cannot be read, or was not
+   *                        written by a simulation of the same rules.
+   * @throws IllegalStateException    If no checkpoint file is set.
+   * @throws UnsupportedOperationException    If the {@link DiceSource} of this
+   *                                          instance cannot be
+   *                                          checkpointed.
+   */
+  public SimulationResult resume() throws IOException {
+    if (checkpointFile == null) {
+      throw new IllegalStateException("No checkpoint file has been set.");
+    }
+    byte mode;
+    long rounds;
+    SimulationResult total;
+    long completed = 0;
+    DiceSource root = null;
+    long chunks = 0;
+    long[] done = null;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+      if (in.readInt() != CHECKPOINT_MAGIC || in.readByte() != CHECKPOINT_VERSION) {
+        throw new IOException(String.format("%s is not a simulation checkpoint.", checkpointFile));
+      }
+      String name = in.readUTF();
+      if (!name.equals(rules.getName())) {
+        throw new IOException(String.format("Checkpoint is of a simulation of %s rules.", name));
+      }
+      mode = in.readByte();
+      rounds = in.readLong();
+      total = new SimulationResult(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+      if (mode == SEQUENTIAL_MODE) {
+        completed = in.readLong();
+        dice.restoreState(in);
+        buffer.restore(in);
+      } else if (mode == PARALLEL_MODE) {
+        root = dice.split();
+        dice.restoreState(in);
+        buffer.restore(in);
+        root.restoreState(in);
+        chunks = in.readLong();
+        done = new long[(int) ((chunks + Long.SIZE - 1) / Long.SIZE)];
+        for (int i = 0; i < done.length; i++) {
+          done[i] = in.readLong();
+        }
+      } else {
+        throw new IOException(String.format("Invalid checkpoint mode %d.", mode));
+      }
+    }
+    try {
+      return (mode == SEQUENTIAL_MODE)
+          ? runChunked(rounds, completed, total)
+          : runCheckpointed(ForkJoinPool.commonPool(), root,
+              new Progress(rules, rounds, chunks, done, total));
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Returns the event log to which {@link #run(long)} records play, or
+   * {@code null} if play is not recorded.
+   *
+   * @return    event log
+   */
+  public EventLogWriter getEventLog() {
+    return eventLog;
+  }
+
+  /**
+   * Sets the event log to which {@link #run(long)} records every roll, and the
+   * end of every round. (State transitions are implied by these, and are not
+   * recorded.) The caller remains responsible for flushing and closing the
+   * log.
+   *
+   * @param eventLog    event log, or {@code null} to stop recording
+   */
+  public void setEventLog(EventLogWriter eventLog) {
+    this.eventLog = eventLog;
+  }
+
+  /**
+   * Returns the file to which runs are checkpointed, or {@code null} if runs
+   * are not checkpointed.
+   *
+   * @return    checkpoint file
+   */
+  public Path getCheckpointFile() {
+    return checkpointFile;
+  }
+
+  /**
+   * Sets the file to which {@link #run(long)} and
+   * {@link #runParallel(long, ForkJoinPool)} write checkpoints, at (roughly)
+   * the specified interval, and from which {@link #resume()} resumes. A
+   * checkpoint is taken at a chunk boundary (i.e. every {@link #CHUNK_ROUNDS}
+   * rounds), by the thread that completes the chunk, and includes the state
+   * of the dice; it is serialized in memory, and written to disk on a
+   * background thread, so the simulation does not stop. A final checkpoint is
+   * written when the run completes.
+   *
+   * @param checkpointFile    checkpoint file, or {@code null} to stop
+   *                          checkpointing
+   * @param interval          minimum time between checkpoints
+   */
+  public void setCheckpoint(Path checkpointFile, Duration interval) {
+    this.checkpointFile = checkpointFile;
+    this.checkpointInterval = interval.toNanos();
+  }
+
+  /**
+   * Returns the statistics updated by runs of this simulator as they
+   * progress, or {@code null} if live statistics are not collected.
+   *
+   * @return    live statistics
+   */
+  public LiveStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Sets the statistics updated by {@link #run(long)} and
+   * {@link #runParallel(long, ForkJoinPool)} as they progress; these may be
+   * read from any thread while a run is in progress. Each worker flushes its
+   * tallies into the statistics once per chunk of {@link #CHUNK_ROUNDS}
+   * rounds.
+   *
+   * @param statistics    live statistics, or {@code null} to stop collecting
+   */
+  public void setStatistics(LiveStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  /**
+   * Writes the state of the dice of this instance, including any rolls
+   * generated but not yet consumed, so that a sequential run can later be
+   * continued exactly by {@link #restoreState(DataInput)}.
+   */
+  void saveState(DataOutput out) throws IOException {
+    dice.saveState(out);
+    buffer.save(out);
+  }
+
+  /**
+   * Restores the state of the dice of this instance, as written by
+   * {@link #saveState(DataOutput)}.
+   */
+  void restoreState(DataInput in) throws IOException {
+    dice.restoreState(in);
+    buffer.restore(in);
+  }
+
+  private SimulationResult runChunked(long rounds, long completed, SimulationResult total) {
+    LiveStatistics.Recorder recorder = (statistics != null) ? statistics.recorder() : null;
+    try (Checkpointer checkpointer = (checkpointFile != null)
+        ? new Checkpointer(checkpointFile, checkpointInterval)
+        : null) {
+      while (completed < rounds) {
+        long count = Math.min(rounds - completed, CHUNK_ROUNDS);
+        total = total.add((eventLog != null || recorder != null)
+            ? play(buffer, rules, count, eventLog, recorder)
+            : play(buffer, rules, count));
+        completed += count;
+        if (checkpointer != null && (completed == rounds || checkpointer.isDue())) {
+          checkpointer.write(sequentialCheckpoint(rounds, completed, total));
+        }
+      }
+      return total;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private SimulationResult runCheckpointed(ForkJoinPool pool, DiceSource root,
+      Progress progress) {
+    try (Checkpointer checkpointer = new Checkpointer(checkpointFile, checkpointInterval)) {
+      ByteArrayOutputStream states = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(states);
+      dice.saveState(out);
+      buffer.save(out);
+      root.saveState(out);
+      progress.start(states.toByteArray(), checkpointer);
+      pool.invoke(new ChunkTask(root, rules, 0, progress.chunks, progress.rounds, progress,
+          statistics));
+      checkpointer.write(progress.checkpoint());
+      return progress.getTotal();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private byte[] sequentialCheckpoint(long rounds, long completed, SimulationResult total) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      writeCheckpointHeader(out, rules, SEQUENTIAL_MODE, rounds, total);
+      out.writeLong(completed);
+      dice.saveState(out);
+      buffer.save(out);
+      return bytes.toByteArray();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private static void writeCheckpointHeader(DataOutput out, RuleTable rules, byte mode,
+      long rounds, SimulationResult total) throws IOException {
+    out.writeInt(CHECKPOINT_MAGIC);
+    out.writeByte(CHECKPOINT_VERSION);
+    out.writeUTF(rules.getName());
+    out.writeByte(mode);
+    out.writeLong(rounds);
+    out.writeLong(total.getWins());
+    out.writeLong(total.getLosses());
+    out.writeLong(total.getPushes());
+    out.writeLong(total.getRolls());
+  }
+
+  private static void validate(long rounds) {
+    if (rounds < 0) {
+      throw new IllegalArgumentException("Number of rounds must not be negative.");
+    }
+  }
+
+  /**
+   * Plays the specified number of complete rounds, reading the rolls from the
+   * specified buffer, which is refilled from its source in blocks.
+   */
+  private static SimulationResult play(RollBuffer buffer, RuleTable rules, long rounds) {
+    long wins = 0;
+    long losses = 0;
+    long rolls = 0;
+    for (long i = 0; i < rounds; i++) {
+      int roll = buffer.next();
+      int outcome = rules.comeOut(roll);
+      rolls++;
+      if (outcome == RuleTable.POINT) {
+        int point = Rolls.sum(roll);
+        do {
+          outcome = rules.resolve(point, buffer.next());
+          rolls++;
+        } while (outcome == RuleTable.NONE);
+      }
+      wins += (outcome == RuleTable.WIN) ? 1 : 0;
+      losses += (outcome == RuleTable.LOSE) ? 1 : 0;
+    }
+    return new SimulationResult(wins, losses, rounds - wins - losses, rolls);
+  }
+
+  /**
+   * Plays as {@link #play(RollBuffer, RuleTable, long)} does, additionally
+   * recording every roll and round to the event log and/or the statistics
+   * recorder (either of which may be {@code null}); the recorder is flushed
+   * on return.
+   */
+  private static SimulationResult play(RollBuffer buffer, RuleTable rules, long rounds,
+      EventLogWriter log, LiveStatistics.Recorder recorder) {
+    long wins = 0;
+    long losses = 0;
+    long rolls = 0;
+    for (long i = 0; i < rounds; i++) {
+      int roll = buffer.next();
+      int outcome = rules.comeOut(roll);
+      int roundRolls = 1;
+      if (log != null) {
+        log.roll(roll);
+      }
+      if (recorder != null) {
+        recorder.roll(roll);
+      }
+      if (outcome == RuleTable.POINT) {
+        int point = Rolls.sum(roll);
+        if (recorder != null) {
+          recorder.point(point);
+        }
+        do {
+          roll = buffer.next();
+          outcome = rules.resolve(point, roll);
+          roundRolls++;
+          if (log != null) {
+            log.roll(roll);
+          }
+          if (recorder != null) {
+            recorder.roll(roll);
+          }
+        } while (outcome == RuleTable.NONE);
+      }
+      if (log != null) {
+        log.roundEnd(outcome);
+      }
+      if (recorder != null) {
+        recorder.roundEnd(outcome, roundRolls);
+      }
+      rolls += roundRolls;
+      wins += (outcome == RuleTable.WIN) ? 1 : 0;
+      losses += (outcome == RuleTable.LOSE) ? 1 : 0;
+    }
+    if (recorder != null) {
+      recorder.flush();
+    }
+    return new SimulationResult(wins, losses, rounds - wins - losses, rolls);
+  }
+
+  /**
+   * Plays the chunks in the range {@code [first, last)}, splitting the range
+   * in half (and the stream in two) until a single chunk remains. When the
+   * run is checkpointed, chunks already completed are skipped (after the same
+   * splits as in the original run, so that every other chunk gets the same
+   * stream), and completed chunks are reported to the {@link Progress}.
+   */
+  private static class ChunkTask extends RecursiveTask<SimulationResult> {
+
+    private static final long serialVersionUID = -1318255573785917626L;
+
+    private final DiceSource dice;
+    private final RuleTable rules;
+    private final long first;
+    private final long last;
+    private final long rounds;
+    private final Progress progress;
+    private final LiveStatistics statistics;
+
+    private ChunkTask(DiceSource dice, RuleTable rules, long first, long last, long rounds,
+        Progress progress, LiveStatistics statistics) {
+      this.dice = dice;
+      this.rules = rules;
+      this.first = first;
+      this.last = last;
+      this.rounds = rounds;
+      this.progress = progress;
+      this.statistics = statistics;
+    }
+
+    @Override
+    protected SimulationResult compute() {
+      if (last - first <= 1) {
+        if (progress != null && progress.isDone(first)) {
+          return EMPTY;
+        }
+        long start = first * CHUNK_ROUNDS;
+        long count = Math.min(rounds - start, CHUNK_ROUNDS);
+        RollBuffer buffer = new RollBuffer(dice);
+        SimulationResult result = (statistics != null)
+            ? play(buffer, rules, count, null, statistics.recorder())
+            : play(buffer, rules, count);
+        if (progress != null) {
+          progress.complete(first, result);
+        }
+        return result;
+      }
+      long middle = (first + last) >>> 1;
+      ChunkTask low =
+          new ChunkTask(dice.split(), rules, first, middle, rounds, progress, statistics);
+      ChunkTask high = new ChunkTask(dice, rules, middle, last, rounds, progress, statistics);
+      low.fork();
+      return high.compute().add(low.join());
+    }
+
+  }
+
+  /**
+   * Record of the chunks completed in a checkpointed parallel run, and of
+   * their aggregate tallies.
+   */
+  private static class Progress {
+
+    private final RuleTable rules;
+    private final long rounds;
+    private final long chunks;
+    private final long[] done;
+    private SimulationResult total;
+    private byte[] states;
+    private Checkpointer checkpointer;
+
+    private Progress(RuleTable rules, long rounds, long chunks, long[] done,
+        SimulationResult total) {
+      this.rules = rules;
+      this.rounds = rounds;
+      this.chunks = chunks;
+      this.done = (done != null) ? done : new long[(int) ((chunks + Long.SIZE - 1) / Long.SIZE)];
+      this.total = total;
+    }
+
+    private void start(byte[] states, Checkpointer checkpointer) {
+      this.states = states;
+      this.checkpointer = checkpointer;
+    }
+
+    private synchronized boolean isDone(long chunk) {
+      return (done[(int) (chunk / Long.SIZE)] & (1L << chunk)) != 0;
+    }
+
+    private void complete(long chunk, SimulationResult result) {
+      synchronized (this) {
+        done[(int) (chunk / Long.SIZE)] |= 1L << chunk;
+        total = total.add(result);
+      }
+      if (checkpointer.isDue()) {
+        checkpointer.write(checkpoint());
+      }
+    }
+
+    private synchronized SimulationResult getTotal() {
+      return total;
+    }
+
+    private synchronized byte[] checkpoint() {
+      try {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeCheckpointHeader(out, rules, PARALLEL_MODE, rounds, total);
+        out.write(states);
+        out.writeLong(chunks);
+        for (long word : done) {
+          out.writeLong(word);
+        }
+        return bytes.toByteArray();
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+
+  }
+
+}
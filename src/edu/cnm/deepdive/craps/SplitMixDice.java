@@ -0,0 +1,114 @@
+/**
+ * SplitMixDice.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Implementation of {@link DiceSource} using the SplitMix64 algorithm of
+ * {@link SplittableRandom}, with its state (a 64-bit seed and a 64-bit odd
+ * gamma) held in plain fields, so that it can be saved and restored. Every
+ * roll, and every stream obtained by {@link #split()}, is identical to the
+ * corresponding result of a {@link SplittableRandom} with the same seed; a
+ * checkpointed simulation therefore resumes exactly where it left off, and
+ * produces the same result as an uninterrupted run.
+ *
+ * @author Nicholas Bennett
+ */
+final class SplitMixDice implements DiceSource {
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private long seed;
+  private long gamma;
+
+  SplitMixDice(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  private SplitMixDice(long seed, long gamma) {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  /**
+   * Returns a new source with an unpredictable seed and gamma.
+   */
+  static SplitMixDice unseeded() {
+    SplittableRandom rng = new SplittableRandom();
+    return new SplitMixDice(rng.nextLong(), mixGamma(rng.nextLong()));
+  }
+
+  @Override
+  public int nextDie() {
+    return nextInt(Rolls.FACES) + 1;
+  }
+
+  @Override
+  public int nextRoll() {
+    return nextInt(Rolls.COMBINATIONS);
+  }
+
+  @Override
+  public DiceSource split() {
+    return new SplitMixDice(mix64(nextSeed()), mixGamma(nextSeed()));
+  }
+
+  @Override
+  public void saveState(DataOutput out) throws IOException {
+    out.writeLong(seed);
+    out.writeLong(gamma);
+  }
+
+  @Override
+  public void restoreState(DataInput in) throws IOException {
+    long seed = in.readLong();
+    long gamma = in.readLong();
+    if ((gamma & 1) == 0) {
+      throw new IOException("Invalid SplitMix64 state.");
+    }
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  /**
+   * Returns a value uniformly distributed in {@code [0, bound)}, exactly as
+   * {@link SplittableRandom#nextInt(int)} does.
+   */
+  private int nextInt(int bound) {
+    int m = bound - 1;
+    int r = mix32(nextSeed());
+    for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1) {
+      // Reject over-represented candidates.
+    }
+    return r;
+  }
+
+  private long nextSeed() {
+    return seed += gamma;
+  }
+
+  static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  static int mix32(long z) {
+    z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+    return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+
+  static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    int n = Long.bitCount(z ^ (z >>> 1));
+    return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+
+}
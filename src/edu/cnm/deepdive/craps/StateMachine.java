@@ -3,7 +3,10 @@
  */
 package edu.cnm.deepdive.craps;
 
-import java.util.Random;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import jdk.jfr.FlightRecorder;
 
 /**
  * This class implements a multi-round state machine for a solitaire craps
@@ -11,6 +14,17 @@ import java.util.Random;
  * an instance of a functional interface callback used to present the current 
  * roll, and another functional interface instance is interrogated to determine 
  * whether play should proceed/continue.
+ * <p>
+ * The same state machine may instead be driven one step at a time, without
+ * callbacks, via {@link #decide(boolean)} and {@link #roll()}. Neither method
+ * blocks, so a single thread can multiplex any number of instances (e.g. one
+ * per connected player); {@link #play()} is simply a driver loop that obtains
+ * each decision from the callbacks.
+ * <p>
+ * Between decisions, the complete state of play (including the state of the
+ * dice) may be saved with {@link #checkpoint(DataOutput)}, and later restored
+ * with {@link #restore(DataInput)}, so that an interrupted session can be
+ * resumed exactly.
  *  
  * @author Nicholas Bennett
  */
@@ -52,6 +66,11 @@ public class StateMachine {
   
   /**
    * Callback interface for advising the class consumer of the current roll.
+   * {@link StateMachine} always invokes {@link #update(int, int)}; by default,
+   * that method adapts the dice values to a newly allocated {@code int[]} and
+   * passes it to {@link #update(int[])}, so that existing implementations
+   * continue to work unchanged. Implementations that must not allocate on
+   * every roll should override {@link #update(int, int)} directly.
    */
   public interface Display {
     
@@ -63,6 +82,18 @@ public class StateMachine {
      */
     void update(int[] roll);
     
+    /**
+     * Receives the current roll's dice values as primitives. The default
+     * implementation allocates an {@code int[]} and delegates to
+     * {@link #update(int[])}.
+     * 
+     * @param die1      Value of first die.
+     * @param die2      Value of second die.
+     */
+    default void update(int die1, int die2) {
+      update(new int[] {die1, die2});
+    }
+    
   }
   
   /**
@@ -87,68 +118,291 @@ public class StateMachine {
     COME_OUT, CONTINUE, DONE;
   }
   
+  private static final int CHECKPOINT_MAGIC = 0x4352534D;
+  private static final byte CHECKPOINT_VERSION = 1;
+  
   private PlayState state = PlayState.COME_OUT;
   private int wins = 0;
   private int losses = 0;
+  private int point = 0;
+  private int lastRoll = -1;
+  private int lastOutcome = RuleTable.NONE;
 
   private Playable playable = null;
   private Continuable continuable = null;
   private Display display = null;
 
-  private Random rng = new Random();
+  private DiceSource dice;
+  private RuleTable rules;
+  private EventLogWriter eventLog = null;
+  
+  /**
+   * Initializes the state machine with an unseeded {@link DiceSource} backed
+   * by {@link java.util.SplittableRandom}, and the standard pass line rules.
+   */
+  public StateMachine() {
+    this(DiceSource.splittable());
+  }
+  
+  /**
+   * Initializes the state machine with the specified source of dice rolls, and
+   * the standard pass line rules.
+   * 
+   * @param dice    source of dice rolls
+   */
+  public StateMachine(DiceSource dice) {
+    this(dice, RuleTable.PASS_LINE);
+  }
   
   /**
-   * Starts one or more rounds, tallying the pass line bets won and lost. At
+   * Initializes the state machine with the specified source of dice rolls and
+   * rules.
+   * 
+   * @param dice    source of dice rolls
+   * @param rules   rules of the variant to play
+   */
+  public StateMachine(DiceSource dice, RuleTable rules) {
+    this.dice = dice;
+    this.rules = rules;
+  }
+  
+  /**
+   * Starts one or more rounds, tallying the line bets won and lost. At
    * each decision point (i.e. where the shooter must make the decision to 
    * proceed or not), and after each roll, a method on the associated callback 
-   * instance is invoked for the relevant action/response.  
+   * instance is invoked for the relevant action/response. The outcome of each
+   * roll is looked up in the current {@link RuleTable}; a round resolved as a
+   * push is tallied as neither a win nor a loss, while a point abandoned by
+   * the shooter is tallied as a loss.
+   * <p>
+   * When a flight recording is in progress, each round, each point
+   * established, and each callback invocation is recorded as a JFR event
+   * ({@code edu.cnm.deepdive.craps.Round}, {@code edu.cnm.deepdive.craps.Point},
+   * and {@code edu.cnm.deepdive.craps.Callback}, respectively). The flight
+   * recorder is checked before each decision, so a recording started during
+   * play (e.g. with {@code jcmd <pid> JFR.start}) is picked up without
+   * restarting play. Until the flight recorder has been started, the event
+   * classes are not even loaded; once it has, events that are disabled are
+   * never committed.
    */
   public void play() {
     if (playable == null || continuable == null || display == null) {
       throw new MissingCallbackError();
     }
-    while (state == PlayState.COME_OUT && playable.playAgain(wins, losses)) {
-      int[] roll = {
-        rng.nextInt(6) + 1,  
-        rng.nextInt(6) + 1  
-      };
-      int sum = roll[0] + roll[1];
-      display.update(roll);
-      int point = sum;
-      switch (sum) {
-        case 2:
-        case 3:
-        case 12:
-          losses++;
-          break;
-        case 7:
-        case 11:
-          wins++;
-          break;
-        default:
-          state = PlayState.CONTINUE;
-          while (state == PlayState.CONTINUE && continuable.continuePlay(point)) {
-            roll = new int[] {
-              rng.nextInt(6) + 1,  
-              rng.nextInt(6) + 1  
-            };
-            sum = roll[0] + roll[1];
-            display.update(roll);
-            if (sum == point) {
-              wins++;
-              state = PlayState.COME_OUT;
-            } else if (sum == 7) {
-              losses++;
-              state = PlayState.COME_OUT;
-            }
+    RoundEvent round = null;
+    int roundPoint = 0;
+    int roundRolls = 0;
+    while (state != PlayState.DONE) {
+      boolean comeOut = (state == PlayState.COME_OUT);
+      boolean recording = FlightRecorder.isInitialized();
+      CallbackEvent decision = recording ? new CallbackEvent() : null;
+      if (decision != null) {
+        decision.begin();
+      }
+      boolean proceed = comeOut
+          ? playable.playAgain(wins, losses)
+          : continuable.continuePlay(point);
+      if (decision != null && decision.shouldCommit()) {
+        decision.callback = comeOut ? CallbackEvent.PLAYABLE : CallbackEvent.CONTINUABLE;
+        decision.commit();
+      }
+      if (recording && comeOut && proceed) {
+        RoundEvent started = new RoundEvent();
+        if (started.isEnabled()) {
+          round = started;
+          round.begin();
+          roundPoint = 0;
+          roundRolls = 0;
+        }
+      }
+      decide(proceed);
+      if (proceed) {
+        roundRolls++;
+        CallbackEvent update = recording ? new CallbackEvent() : null;
+        if (update != null) {
+          update.begin();
+        }
+        display.update(Rolls.die1(lastRoll), Rolls.die2(lastRoll));
+        if (update != null && update.shouldCommit()) {
+          update.callback = CallbackEvent.DISPLAY;
+          update.commit();
+        }
+      }
+      if (recording && lastOutcome == RuleTable.POINT) {
+        roundPoint = point;
+        PointEvent established = new PointEvent();
+        if (established.shouldCommit()) {
+          established.point = point;
+          established.commit();
+        }
+      }
+      if (round != null && state != PlayState.CONTINUE) {
+        if (round.shouldCommit()) {
+          round.outcome = lastOutcome;
+          round.point = roundPoint;
+          round.rolls = roundRolls;
+          round.commit();
+        }
+        round = null;
+      }
+    }
+  }
+  
+  /**
+   * Advances play by one decision of the shooter, and returns the resulting
+   * state. This method never blocks, and invokes none of the callbacks.
+   * <ul>
+   * <li>In the {@link PlayState#COME_OUT} state, a {@code true} decision rolls
+   * the dice for the come-out roll: the result is
+   * {@link PlayState#CONTINUE} if a point is established, or
+   * {@link PlayState#COME_OUT} if the round is resolved. A {@code false}
+   * decision ends play ({@link PlayState#DONE}).</li>
+   * <li>In the {@link PlayState#CONTINUE} state, a {@code true} decision rolls
+   * the dice for the point: the result is {@link PlayState#COME_OUT} if the
+   * round is resolved, or {@link PlayState#CONTINUE} otherwise. A
+   * {@code false} decision abandons the point, which is tallied as a loss, and
+   * ends play ({@link PlayState#DONE}).</li>
+   * </ul>
+   * The roll and its outcome are then available from {@link #getLastRoll()}
+   * and {@link #getLastOutcome()}.
+   * 
+   * @param proceed   {@code true} to roll the dice; {@code false} to stop.
+   * @return          new state
+   * @throws IllegalStateException    if play is already done
+   */
+  public PlayState decide(boolean proceed) {
+    PlayState previous = state;
+    switch (state) {
+      case COME_OUT:
+        if (proceed) {
+          lastRoll = dice.nextRoll();
+          lastOutcome = rules.comeOut(lastRoll);
+          if (lastOutcome == RuleTable.POINT) {
+            point = Rolls.sum(lastRoll);
+            state = PlayState.CONTINUE;
+          } else {
+            tally(lastOutcome);
           }
-          if (state == PlayState.CONTINUE) {
-            losses++;
-            state = PlayState.DONE;
+        } else {
+          lastOutcome = RuleTable.NONE;
+          state = PlayState.DONE;
+        }
+        break;
+      case CONTINUE:
+        if (proceed) {
+          lastRoll = dice.nextRoll();
+          lastOutcome = rules.resolve(point, lastRoll);
+          if (lastOutcome != RuleTable.NONE) {
+            tally(lastOutcome);
+            point = 0;
+            state = PlayState.COME_OUT;
           }
-      }
+        } else {
+          losses++;
+          lastOutcome = RuleTable.LOSE;
+          point = 0;
+          state = PlayState.DONE;
+        }
+        break;
+      default:
+        throw new IllegalStateException("Play is already done.");
+    }
+    if (eventLog != null) {
+      record(previous, proceed);
+    }
+    return state;
+  }
+  
+  /**
+   * Rolls the dice for the come-out roll or the point, as appropriate to the
+   * current state; this is equivalent to {@code decide(true)}.
+   * 
+   * @return    new state
+   * @throws IllegalStateException    if play is already done
+   */
+  public PlayState roll() {
+    return decide(true);
+  }
+  
+  /**
+   * Writes a compact binary checkpoint of the state of play: the play state,
+   * tallies, point, most recent roll and outcome, the name of the rules, and
+   * the state of the dice. The callbacks and event log are not included.
+   * 
+   * @param out   destination of checkpoint
+   * @throws IOException    if the checkpoint cannot be written
+   * @throws UnsupportedOperationException    if the {@link DiceSource} cannot
+   *                                          be checkpointed
+   */
+  public void checkpoint(DataOutput out) throws IOException {
+    out.writeInt(CHECKPOINT_MAGIC);
+    out.writeByte(CHECKPOINT_VERSION);
+    out.writeUTF(rules.getName());
+    out.writeByte(state.ordinal());
+    out.writeInt(wins);
+    out.writeInt(losses);
+    out.writeByte(point);
+    out.writeByte(lastRoll);
+    out.writeByte(lastOutcome);
+    dice.saveState(out);
+  }
+  
+  /**
+   * Restores the state of play, and of the dice, from a checkpoint written by
+   * {@link #checkpoint(DataOutput)}. Subsequent play is identical to that of
+   * the checkpointed instance.
+   * 
+   * @param in    source of checkpoint
+   * @throws IOException    if the checkpoint cannot be read, is invalid, or
+   *                        was written by a state machine with different
+   *                        rules
+   * @throws UnsupportedOperationException    if the {@link DiceSource} cannot
+   *                                          be checkpointed
+   */
+  public void restore(DataInput in) throws IOException {
+    if (in.readInt() != CHECKPOINT_MAGIC || in.readByte() != CHECKPOINT_VERSION) {
+      throw new IOException("Not a state machine checkpoint.");
+    }
+    String name = in.readUTF();
+    if (!name.equals(rules.getName())) {
+      throw new IOException(String.format("Checkpoint is of a game with %s rules.", name));
+    }
+    int ordinal = in.readByte();
+    if (ordinal < 0 || ordinal >= PlayState.values().length) {
+      throw new IOException(String.format("Invalid play state %d.", ordinal));
+    }
+    int wins = in.readInt();
+    int losses = in.readInt();
+    int point = in.readByte();
+    int lastRoll = in.readByte();
+    int lastOutcome = in.readByte();
+    dice.restoreState(in);
+    this.state = PlayState.values()[ordinal];
+    this.wins = wins;
+    this.losses = losses;
+    this.point = point;
+    this.lastRoll = lastRoll;
+    this.lastOutcome = lastOutcome;
+  }
+  
+  private void record(PlayState previous, boolean proceed) {
+    if (proceed) {
+      eventLog.roll(lastRoll);
+    }
+    if (lastOutcome != RuleTable.NONE && lastOutcome != RuleTable.POINT) {
+      eventLog.roundEnd(lastOutcome);
+    }
+    if (state != previous) {
+      eventLog.state(state);
+    }
+  }
+  
+  private void tally(int outcome) {
+    if (outcome == RuleTable.WIN) {
+      wins++;
+    } else if (outcome == RuleTable.LOSE) {
+      losses++;
     }
-    state = PlayState.DONE;
   }
   
   /**
@@ -160,6 +414,39 @@ public class StateMachine {
     return state;
   }
   
+  /**
+   * Returns the current point, or 0 if no point is established.
+   * 
+   * @return    point
+   */
+  public int getPoint() {
+    return point;
+  }
+  
+  /**
+   * Returns the code (see {@link Rolls}) of the most recent roll, or -1 if the
+   * dice have not yet been rolled.
+   * 
+   * @return    roll code
+   */
+  public int getLastRoll() {
+    return lastRoll;
+  }
+  
+  /**
+   * Returns the outcome (one of the {@link RuleTable} outcome constants) of
+   * the most recent decision. A come-out roll that establishes a point has the
+   * outcome {@link RuleTable#POINT}; a roll that does not resolve the round,
+   * or a decision to stop on the come-out, has the outcome
+   * {@link RuleTable#NONE}; abandoning a point has the outcome
+   * {@link RuleTable#LOSE}.
+   * 
+   * @return    outcome
+   */
+  public int getLastOutcome() {
+    return lastOutcome;
+  }
+  
   /**
    * Sets the current play state. This method is intended for use by subclasses
    * that override the {@link #play()} method, to implement a non-standard 
@@ -269,4 +556,66 @@ public class StateMachine {
     this.display = display;
   }
   
+  /**
+   * Returns the source of dice rolls.
+   * 
+   * @return    source of dice rolls
+   */
+  public DiceSource getDiceSource() {
+    return dice;
+  }
+  
+  /**
+   * Sets the source of dice rolls. A deterministically seeded source may be
+   * used to make play reproducible.
+   * 
+   * @param dice    source of dice rolls
+   */
+  public void setDiceSource(DiceSource dice) {
+    this.dice = dice;
+  }
+  
+  /**
+   * Returns the rules of the variant being played.
+   * 
+   * @return    rules
+   */
+  public RuleTable getRules() {
+    return rules;
+  }
+  
+  /**
+   * Sets the rules of the variant being played. This method is intended for
+   * use by subclasses implementing a non-standard variant of craps, which can
+   * then be played by the inherited {@link #play()} method.
+   * 
+   * @param rules   rules of the variant to play
+   */
+  protected void setRules(RuleTable rules) {
+    this.rules = rules;
+  }
+  
+  /**
+   * Returns the event log to which play is recorded, or {@code null} if play
+   * is not recorded.
+   * 
+   * @return    event log
+   */
+  public EventLogWriter getEventLog() {
+    return eventLog;
+  }
+  
+  /**
+   * Sets the event log to which play is recorded. Every decision made through
+   * {@link #decide(boolean)} (and so through {@link #play()}) is recorded as
+   * the roll (if any), the end of the round (if resolved), and the new state
+   * (if changed). The caller remains responsible for flushing and closing the
+   * log.
+   * 
+   * @param eventLog    event log, or {@code null} to stop recording
+   */
+  public void setEventLog(EventLogWriter eventLog) {
+    this.eventLog = eventLog;
+  }
+  
 }
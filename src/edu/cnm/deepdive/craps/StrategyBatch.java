@@ -0,0 +1,299 @@
+/**
+ * StrategyBatch.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.util.Arrays;
+
+/**
+ * This class evaluates a whole batch of betting strategies against a single,
+ * shared stream of rolls, advancing all of them in lockstep. Each strategy is
+ * a fixed combination of flat pass, don't pass, come, and place bets, with free
+ * odds taken (or laid) at a fixed multiple on every line and come bet; the
+ * wagers are the same as those supported by {@link Wagers}, and are paid from
+ * the same fixed-point payout tables.
+ * <p>
+ * Since every strategy sees the same rolls, and bets according to the same
+ * rules, the position of every bet on the layout (the point, the pending come
+ * bet, the come bets on each number) is shared; only the amounts differ from
+ * one strategy to the next. The batch therefore keeps that shared state once,
+ * and keeps the per-strategy amounts, payouts, and results in parallel
+ * primitive arrays (struct-of-arrays style). Resolving a roll is done once,
+ * yielding a handful of multiples of those amount arrays; every strategy is
+ * then updated by simple, branch-free loops over the arrays, which the JIT
+ * compiler can unroll and vectorize. The cost of a step is thus one roll
+ * generation plus a few array passes, regardless of how many strategies are
+ * compared.
+ * <p>
+ * The net result of each strategy includes only resolved wagers; stakes still
+ * on the layout when evaluation stops are neither won nor lost.
+ *
+ * @author Nicholas Bennett
+ */
+public class StrategyBatch {
+
+  private static final int NUMBERS = Wagers.NUMBERS.length;
+  private static final int MAX_TERMS = 4 * NUMBERS + 8;
+  private static final RuleTable DO = RuleTable.PASS_LINE;
+  private static final RuleTable DONT = RuleTable.DONT_PASS_BAR_12;
+
+  private final int size;
+  private final long[] pass;
+  private final long[] dontPass;
+  private final long[] come;
+  private final long[] passOdds;
+  private final long[] dontOdds;
+  private final long[] comeOdds;
+  private final long[][] passOddsWin = new long[NUMBERS][];
+  private final long[][] dontOddsWin = new long[NUMBERS][];
+  private final long[][] comeOddsWin = new long[NUMBERS][];
+  private final long[][] place = new long[NUMBERS][];
+  private final long[][] placeWin = new long[NUMBERS][];
+  private final long[] net;
+  private final long[] lowWater;
+
+  private final long[][] terms = new long[MAX_TERMS][];
+  private final long[] factors = new long[MAX_TERMS];
+  private int termCount;
+
+  private final int[] comeCount = new int[NUMBERS];
+  private int point;
+  private long rolls;
+
+  /**
+   * Initializes the batch with the specified strategies. Element {@code i} of
+   * each array is a parameter of strategy {@code i}; all arrays must have the
+   * same length. A zero amount means that the corresponding bet is never
+   * made.
+   *
+   * @param pass            Flat pass line bet, made on every come-out roll.
+   * @param dontPass        Flat don't pass bet, made on every come-out roll.
+   * @param come            Flat come bet, made on every roll with a point on.
+   * @param oddsMultiple    Odds taken or laid, as a multiple of each line and
+   *                        come bet.
+   * @param place           Place bets, indexed first by number (in the order
+   *                        4, 5, 6, 8, 9, 10) and then by strategy; these are
+   *                        up whenever a point is on. May be {@code null}, if
+   *                        no strategy makes place bets.
+   * @throws IllegalArgumentException   If the array lengths are not
+   *                                    consistent.
+   */
+  public StrategyBatch(long[] pass, long[] dontPass, long[] come, int[] oddsMultiple,
+      long[][] place) {
+    size = pass.length;
+    if (dontPass.length != size || come.length != size || oddsMultiple.length != size
+        || (place != null && place.length != NUMBERS)) {
+      throw new IllegalArgumentException("Inconsistent strategy array lengths.");
+    }
+    this.pass = pass.clone();
+    this.dontPass = dontPass.clone();
+    this.come = come.clone();
+    passOdds = new long[size];
+    dontOdds = new long[size];
+    comeOdds = new long[size];
+    for (int i = 0; i < size; i++) {
+      passOdds[i] = pass[i] * oddsMultiple[i];
+      dontOdds[i] = dontPass[i] * oddsMultiple[i];
+      comeOdds[i] = come[i] * oddsMultiple[i];
+    }
+    for (int k = 0; k < NUMBERS; k++) {
+      int number = Wagers.NUMBERS[k];
+      passOddsWin[k] = payout(passOdds, Wagers.ODDS_PAYOUT[number]);
+      dontOddsWin[k] = payout(dontOdds, Wagers.LAY_PAYOUT[number]);
+      comeOddsWin[k] = payout(comeOdds, Wagers.ODDS_PAYOUT[number]);
+      if (place == null) {
+        this.place[k] = new long[size];
+      } else if (place[k].length != size) {
+        throw new IllegalArgumentException("Inconsistent strategy array lengths.");
+      } else {
+        this.place[k] = place[k].clone();
+      }
+      placeWin[k] = payout(this.place[k], Wagers.PLACE_PAYOUT[number]);
+    }
+    net = new long[size];
+    lowWater = new long[size];
+  }
+
+  /**
+   * Evaluates all strategies against the specified number of rolls from the
+   * specified source.
+   *
+   * @param dice    Source of rolls.
+   * @param rolls   Number of rolls.
+   */
+  public void run(DiceSource dice, long rolls) {
+    for (long i = 0; i < rolls; i++) {
+      step(dice.nextRoll());
+    }
+  }
+
+  /**
+   * Makes the bets called for by every strategy, resolves them against the
+   * specified roll, and updates the results of every strategy.
+   *
+   * @param roll    Roll code (see {@link Rolls}).
+   */
+  public void step(int roll) {
+    int sum = Rolls.sum(roll);
+    int index = Wagers.NUMBER_INDEX[sum];
+    boolean comeOut = (point == 0);
+    termCount = 0;
+    if (!comeOut) {
+      if (sum == 7) {
+        for (int k = 0; k < NUMBERS; k++) {
+          addTerm(place[k], -1);
+        }
+      } else if (index >= 0) {
+        addTerm(placeWin[index], 1);
+      }
+    }
+    for (int k = 0; k < NUMBERS; k++) {
+      int count = comeCount[k];
+      if (count > 0) {
+        int outcome = DO.resolve(Wagers.NUMBERS[k], roll);
+        if (outcome != RuleTable.NONE) {
+          addTerm(come, count * sign(outcome));
+          if (!comeOut) {
+            addTerm((outcome == RuleTable.WIN) ? comeOddsWin[k] : comeOdds, count * sign(outcome));
+          }
+          comeCount[k] = 0;
+        }
+      }
+    }
+    if (!comeOut) {
+      int outcome = DO.comeOut(roll);
+      if (outcome == RuleTable.POINT) {
+        comeCount[index]++;
+      } else {
+        addTerm(come, sign(outcome));
+      }
+    }
+    if (comeOut) {
+      int outcome = DO.comeOut(roll);
+      if (outcome == RuleTable.POINT) {
+        point = sum;
+      } else {
+        addTerm(pass, sign(outcome));
+        addTerm(dontPass, sign(DONT.comeOut(roll)));
+      }
+    } else {
+      int outcome = DO.resolve(point, roll);
+      if (outcome != RuleTable.NONE) {
+        int k = Wagers.NUMBER_INDEX[point];
+        addTerm(pass, sign(outcome));
+        addTerm((outcome == RuleTable.WIN) ? passOddsWin[k] : passOdds, sign(outcome));
+        outcome = DONT.resolve(point, roll);
+        addTerm(dontPass, sign(outcome));
+        addTerm((outcome == RuleTable.WIN) ? dontOddsWin[k] : dontOdds, sign(outcome));
+        point = 0;
+      }
+    }
+    apply();
+    rolls++;
+  }
+
+  /**
+   * Returns the number of strategies in the batch.
+   *
+   * @return    number of strategies
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of rolls evaluated so far.
+   *
+   * @return    rolls
+   */
+  public long getRolls() {
+    return rolls;
+  }
+
+  /**
+   * Returns the current point, or 0 if no point is established.
+   *
+   * @return    point
+   */
+  public int getPoint() {
+    return point;
+  }
+
+  /**
+   * Returns the net result of the specified strategy so far.
+   *
+   * @param strategy    Index of strategy.
+   * @return            Net result, in betting units.
+   */
+  public long getNet(int strategy) {
+    return net[strategy];
+  }
+
+  /**
+   * Returns the lowest net result of the specified strategy so far (i.e. its
+   * maximum drawdown from the start, as a non-positive value).
+   *
+   * @param strategy    Index of strategy.
+   * @return            Lowest net result, in betting units.
+   */
+  public long getLowWater(int strategy) {
+    return lowWater[strategy];
+  }
+
+  /**
+   * Returns a copy of the net results of all strategies so far.
+   *
+   * @return    net results, indexed by strategy
+   */
+  public long[] getNet() {
+    return net.clone();
+  }
+
+  /**
+   * Resets the results of all strategies, and clears the layout.
+   */
+  public void reset() {
+    Arrays.fill(net, 0);
+    Arrays.fill(lowWater, 0);
+    Arrays.fill(comeCount, 0);
+    point = 0;
+    rolls = 0;
+  }
+
+  private static long[] payout(long[] stakes, int payout) {
+    long[] wins = new long[stakes.length];
+    for (int i = 0; i < stakes.length; i++) {
+      wins[i] = stakes[i] * payout / Wagers.PAYOUT_SCALE;
+    }
+    return wins;
+  }
+
+  private static int sign(int outcome) {
+    return (outcome == RuleTable.WIN) ? 1 : (outcome == RuleTable.LOSE) ? -1 : 0;
+  }
+
+  private void addTerm(long[] amounts, long factor) {
+    if (factor != 0) {
+      terms[termCount] = amounts;
+      factors[termCount++] = factor;
+    }
+  }
+
+  private void apply() {
+    long[] net = this.net;
+    for (int t = 0; t < termCount; t++) {
+      long[] amounts = terms[t];
+      long factor = factors[t];
+      for (int i = 0; i < size; i++) {
+        net[i] += factor * amounts[i];
+      }
+    }
+    if (termCount > 0) {
+      long[] lowWater = this.lowWater;
+      for (int i = 0; i < size; i++) {
+        lowWater[i] = Math.min(lowWater[i], net[i]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * StreamLineSource.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Implementation of {@link LineSource} that writes prompts to a
+ * {@link PrintWriter} and reads lines from a {@link BufferedReader}, e.g. the
+ * streams of a socket or pipe.
+ *
+ * @author Nicholas Bennett
+ */
+public class StreamLineSource implements LineSource {
+
+  private final BufferedReader input;
+  private final PrintWriter output;
+
+  /**
+   * Initializes the source with the specified streams.
+   *
+   * @param input     Stream from which lines are read.
+   * @param output    Stream to which prompts are written.
+   */
+  public StreamLineSource(BufferedReader input, PrintWriter output) {
+    this.input = input;
+    this.output = output;
+  }
+
+  @Override
+  public String readLine(String format, Object... args) {
+    output.printf(format, args);
+    output.flush();
+    try {
+      return input.readLine();
+    } catch (IOException ex) {
+      // A broken connection is treated as the end of input.
+      return null;
+    }
+  }
+
+}
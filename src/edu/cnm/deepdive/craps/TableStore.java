@@ -0,0 +1,345 @@
+/**
+ * TableStore.java
+ */
+package edu.cnm.deepdive.craps;
+
+import edu.cnm.deepdive.craps.StateMachine.PlayState;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * This class holds the state of play of any number of tables in fixed-width,
+ * 40-byte records in direct (off-heap) {@link ByteBuffer} segments, instead
+ * of one {@link StateMachine} object (with its callbacks, source of rolls,
+ * and boxed state) per table. A table is identified by an {@code int}
+ * handle, returned by {@link #allocate(long)}, which indexes its record; the
+ * record holds the state of play, point, last roll and outcome, 64-bit win
+ * and loss tallies, and the 128-bit state of the table's SplitMix64 dice.
+ * <p>
+ * {@link #step(int)} rolls the dice of a table and advances its record in
+ * place, with the same rules and tallies as
+ * {@link StateMachine#decide(boolean)}, and without allocating. The rolls of a
+ * table allocated with a given seed are identical to those of
+ * {@link DiceSource#splittable(long)} with the same seed, so a table's tallies
+ * after a number of rounds match those of a {@link Simulator} with that seed.
+ * <p>
+ * Different tables may be stepped concurrently by different threads, but
+ * each table must be stepped by only one thread at a time.
+ * {@link #allocate(long)} and {@link #release(int)} are synchronized; the
+ * accessors of a table may be invoked concurrently with steps of other
+ * tables.
+ *
+ * @author Nicholas Bennett
+ */
+public class TableStore {
+
+  /** Length of the record of a single table, in bytes. */
+  public static final int RECORD_BYTES = 40;
+
+  private static final int STATE_OFFSET = 0;
+  private static final int POINT_OFFSET = 1;
+  private static final int ROLL_OFFSET = 2;
+  private static final int OUTCOME_OFFSET = 3;
+  private static final int NEXT_FREE_OFFSET = 4;
+  private static final int WINS_OFFSET = 8;
+  private static final int LOSSES_OFFSET = 16;
+  private static final int SEED_OFFSET = 24;
+  private static final int GAMMA_OFFSET = 32;
+  private static final byte FREE = -1;
+  private static final int NONE = -1;
+  private static final int SEGMENT_BITS = 20;
+  private static final int SEGMENT_RECORDS = 1 << SEGMENT_BITS;
+  private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final PlayState[] STATES = PlayState.values();
+  private static final int DEFAULT_TABLES = 1_000_000;
+  private static final int DEFAULT_ROUNDS = 100;
+  private static final String TIME_FORMAT =
+      "tables = %,d; rolls = %,d; %.2f ns/roll; %,d bytes off-heap%n";
+
+  private final RuleTable rules;
+  private volatile ByteBuffer[] segments = new ByteBuffer[0];
+  private volatile int size;
+  private int count;
+  private int firstFree = NONE;
+
+  /**
+   * Allocates the specified number of tables, plays the specified number of
+   * rounds at each by stepping all tables in turn, and prints the time per
+   * roll. Then checks the tallies of a sample of tables against those of a
+   * {@link Simulator} with the same seed, and exits with status 1 if any
+   * differ.
+   *
+   * @param args  Command-line arguments: number of tables (optional, default
+   *              1,000,000), and number of rounds per table (optional,
+   *              default 100).
+   */
+  public static void main(String[] args) {
+    int tables = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_TABLES;
+    int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+    TableStore store = new TableStore(RuleTable.PASS_LINE);
+    int[] handles = new int[tables];
+    for (int i = 0; i < tables; i++) {
+      handles[i] = store.allocate(i);
+    }
+    long[] played = new long[tables];
+    long rolls = 0;
+    long start = System.nanoTime();
+    for (boolean pending = true; pending; ) {
+      pending = false;
+      for (int i = 0; i < tables; i++) {
+        if (played[i] < rounds) {
+          int outcome = store.step(handles[i]);
+          rolls++;
+          if (outcome != RuleTable.NONE && outcome != RuleTable.POINT) {
+            played[i]++;
+          }
+          pending = true;
+        }
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf(TIME_FORMAT, tables, rolls, (double) elapsed / rolls,
+        (long) store.segments.length * SEGMENT_RECORDS * RECORD_BYTES);
+    int step = Math.max(1, tables / 1000);
+    for (int i = 0; i < tables; i += step) {
+      SimulationResult expected = new Simulator(i).run(rounds);
+      if (store.getWins(handles[i]) != expected.getWins()
+          || store.getLosses(handles[i]) != expected.getLosses()) {
+        System.out.printf("Table %d differs from simulation: %d/%d vs. %s%n", i,
+            store.getWins(handles[i]), store.getLosses(handles[i]), expected);
+        System.exit(1);
+      }
+    }
+  }
+
+  /**
+   * Initializes an empty store for tables playing by the specified rules.
+   *
+   * @param rules   Rules of the variant.
+   */
+  public TableStore(RuleTable rules) {
+    this.rules = rules;
+  }
+
+  /**
+   * Allocates a table in the come-out state, with no wins or losses, and
+   * dice seeded with the specified value, reusing the record of a released
+   * table if there is one.
+   *
+   * @param seed    Seed value.
+   * @return        Handle of table.
+   * @throws IllegalStateException    If the store already holds
+   *                                  {@link Integer#MAX_VALUE} tables.
+   */
+  public synchronized int allocate(long seed) {
+    int handle;
+    if (firstFree != NONE) {
+      handle = firstFree;
+      firstFree = segment(handle).getInt(offset(handle) + NEXT_FREE_OFFSET);
+    } else {
+      if (size == Integer.MAX_VALUE) {
+        throw new IllegalStateException("Table store is full.");
+      }
+      handle = size++;
+      if (handle >>> SEGMENT_BITS == segments.length) {
+        ByteBuffer[] grown = Arrays.copyOf(segments, segments.length + 1);
+        grown[segments.length] = ByteBuffer.allocateDirect(SEGMENT_RECORDS * RECORD_BYTES)
+            .order(ByteOrder.nativeOrder());
+        segments = grown;
+      }
+    }
+    ByteBuffer segment = segment(handle);
+    int offset = offset(handle);
+    segment.put(offset + STATE_OFFSET, (byte) PlayState.COME_OUT.ordinal());
+    segment.put(offset + POINT_OFFSET, (byte) 0);
+    segment.put(offset + ROLL_OFFSET, (byte) NONE);
+    segment.put(offset + OUTCOME_OFFSET, (byte) RuleTable.NONE);
+    segment.putInt(offset + NEXT_FREE_OFFSET, NONE);
+    segment.putLong(offset + WINS_OFFSET, 0);
+    segment.putLong(offset + LOSSES_OFFSET, 0);
+    segment.putLong(offset + SEED_OFFSET, seed);
+    segment.putLong(offset + GAMMA_OFFSET, GOLDEN_GAMMA);
+    count++;
+    return handle;
+  }
+
+  /**
+   * Releases the specified table; its record will be reused by a subsequent
+   * allocation, and its handle must no longer be used.
+   *
+   * @param handle    Handle of table.
+   * @throws IllegalArgumentException   If the handle does not refer to an
+   *                                    allocated table.
+   */
+  public synchronized void release(int handle) {
+    check(handle);
+    ByteBuffer segment = segment(handle);
+    int offset = offset(handle);
+    segment.put(offset + STATE_OFFSET, FREE);
+    segment.putInt(offset + NEXT_FREE_OFFSET, firstFree);
+    firstFree = handle;
+    count--;
+  }
+
+  /**
+   * Returns the number of tables currently allocated.
+   *
+   * @return    tables
+   */
+  public synchronized int size() {
+    return count;
+  }
+
+  /**
+   * Rolls the dice of the specified table, and advances the state of play
+   * and tallies of the table accordingly.
+   *
+   * @param handle    Handle of table.
+   * @return          Outcome of roll: {@link RuleTable#POINT} for a come-out
+   *                  roll that establishes a point, {@link RuleTable#NONE}
+   *                  for a point-phase roll that does not resolve the round,
+   *                  and otherwise {@link RuleTable#WIN},
+   *                  {@link RuleTable#LOSE}, or {@link RuleTable#PUSH}.
+   * @throws IllegalArgumentException   If the handle does not refer to an
+   *                                    allocated table.
+   */
+  public int step(int handle) {
+    int state = check(handle);
+    ByteBuffer segment = segment(handle);
+    int offset = offset(handle);
+    int roll = nextRoll(segment, offset);
+    int outcome;
+    if (state == PlayState.COME_OUT.ordinal()) {
+      outcome = rules.comeOut(roll);
+      if (outcome == RuleTable.POINT) {
+        segment.put(offset + STATE_OFFSET, (byte) PlayState.CONTINUE.ordinal());
+        segment.put(offset + POINT_OFFSET, (byte) Rolls.sum(roll));
+      }
+    } else {
+      outcome = rules.resolve(segment.get(offset + POINT_OFFSET), roll);
+      if (outcome != RuleTable.NONE) {
+        segment.put(offset + STATE_OFFSET, (byte) PlayState.COME_OUT.ordinal());
+        segment.put(offset + POINT_OFFSET, (byte) 0);
+      }
+    }
+    if (outcome == RuleTable.WIN) {
+      segment.putLong(offset + WINS_OFFSET, segment.getLong(offset + WINS_OFFSET) + 1);
+    } else if (outcome == RuleTable.LOSE) {
+      segment.putLong(offset + LOSSES_OFFSET, segment.getLong(offset + LOSSES_OFFSET) + 1);
+    }
+    segment.put(offset + ROLL_OFFSET, (byte) roll);
+    segment.put(offset + OUTCOME_OFFSET, (byte) outcome);
+    return outcome;
+  }
+
+  /**
+   * Returns the state of play of the specified table: either
+   * {@link PlayState#COME_OUT} or {@link PlayState#CONTINUE}.
+   *
+   * @param handle    Handle of table.
+   * @return          State of play.
+   */
+  public PlayState getState(int handle) {
+    return STATES[check(handle)];
+  }
+
+  /**
+   * Returns the current point of the specified table, or 0 if no point is
+   * established.
+   *
+   * @param handle    Handle of table.
+   * @return          point
+   */
+  public int getPoint(int handle) {
+    check(handle);
+    return segment(handle).get(offset(handle) + POINT_OFFSET);
+  }
+
+  /**
+   * Returns the code of the last roll at the specified table (see
+   * {@link Rolls}), or -1 if it has not been stepped.
+   *
+   * @param handle    Handle of table.
+   * @return          last roll
+   */
+  public int getLastRoll(int handle) {
+    check(handle);
+    return segment(handle).get(offset(handle) + ROLL_OFFSET);
+  }
+
+  /**
+   * Returns the outcome of the last roll at the specified table, as returned
+   * by {@link #step(int)}, or {@link RuleTable#NONE} if it has not been
+   * stepped.
+   *
+   * @param handle    Handle of table.
+   * @return          last outcome
+   */
+  public int getLastOutcome(int handle) {
+    check(handle);
+    return segment(handle).get(offset(handle) + OUTCOME_OFFSET);
+  }
+
+  /**
+   * Returns the number of rounds won at the specified table.
+   *
+   * @param handle    Handle of table.
+   * @return          wins
+   */
+  public long getWins(int handle) {
+    check(handle);
+    return segment(handle).getLong(offset(handle) + WINS_OFFSET);
+  }
+
+  /**
+   * Returns the number of rounds lost at the specified table.
+   *
+   * @param handle    Handle of table.
+   * @return          losses
+   */
+  public long getLosses(int handle) {
+    check(handle);
+    return segment(handle).getLong(offset(handle) + LOSSES_OFFSET);
+  }
+
+  /**
+   * Returns a roll code uniformly distributed in {@code [0, 36)}, advancing
+   * the SplitMix64 state in the record exactly as
+   * {@link SplitMixDice#nextRoll()} does.
+   */
+  private static int nextRoll(ByteBuffer segment, int offset) {
+    long seed = segment.getLong(offset + SEED_OFFSET);
+    long gamma = segment.getLong(offset + GAMMA_OFFSET);
+    int bound = Rolls.COMBINATIONS;
+    int m = bound - 1;
+    int r = SplitMixDice.mix32(seed += gamma);
+    for (int u = r >>> 1; u + m - (r = u % bound) < 0;
+        u = SplitMixDice.mix32(seed += gamma) >>> 1) {
+      // Reject over-represented candidates.
+    }
+    segment.putLong(offset + SEED_OFFSET, seed);
+    return r;
+  }
+
+  private int check(int handle) {
+    if (handle < 0 || handle >= size) {
+      throw new IllegalArgumentException("Invalid table handle.");
+    }
+    int state = segment(handle).get(offset(handle) + STATE_OFFSET);
+    if (state == FREE) {
+      throw new IllegalArgumentException("Table has been released.");
+    }
+    return state;
+  }
+
+  private ByteBuffer segment(int handle) {
+    return segments[handle >>> SEGMENT_BITS];
+  }
+
+  private static int offset(int handle) {
+    return (handle & SEGMENT_MASK) * RECORD_BYTES;
+  }
+
+}
@@ -0,0 +1,34 @@
+/**
+ * ThreadLocalDiceSource.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Implementation of {@link DiceSource} backed by {@link ThreadLocalRandom}.
+ * Since every thread already draws from its own generator, a single instance
+ * is shared, and {@link #split()} returns that same instance.
+ *
+ * @author Nicholas Bennett
+ */
+enum ThreadLocalDiceSource implements DiceSource {
+
+  INSTANCE;
+
+  @Override
+  public int nextDie() {
+    return ThreadLocalRandom.current().nextInt(Rolls.FACES) + 1;
+  }
+
+  @Override
+  public int nextRoll() {
+    return ThreadLocalRandom.current().nextInt(Rolls.COMBINATIONS);
+  }
+
+  @Override
+  public DiceSource split() {
+    return this;
+  }
+
+}
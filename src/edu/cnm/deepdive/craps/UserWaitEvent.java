@@ -0,0 +1,36 @@
+/**
+ * UserWaitEvent.java
+ */
+package edu.cnm.deepdive.craps;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a period in which the game thread of
+ * {@link GuiGame} is parked, waiting for the user interface (i.e. for the
+ * event dispatch thread to build the window, or for the user to click a
+ * button).
+ *
+ * @author Nicholas Bennett
+ */
+@Name("edu.cnm.deepdive.craps.UserWait")
+@Label("User Wait")
+@Category("Craps")
+@Description("Game thread waiting for the user interface")
+final class UserWaitEvent extends jdk.jfr.Event {
+
+  static final String SETUP = "setup";
+  static final String RESPONSE = "response";
+
+  @Label("Reason")
+  @Description("What the game thread is waiting for")
+  String reason;
+
+  @Label("Proceed")
+  @Description("Whether the user chose to proceed (for a response)")
+  boolean proceed;
+
+}
@@ -0,0 +1,544 @@
+/**
+ * VarianceReduction.java
+ */
+package edu.cnm.deepdive.craps;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * This class provides simulation estimators that reach a given precision with
+ * far fewer rounds than plain simulation, for comparisons and tail queries
+ * that would otherwise need billions of rounds:
+ * <ul>
+ *   <li>{@link #compare(RuleTable, DiceSource, long)} estimates the
+ *   difference in return between two line bet strategies (rule tables) with
+ *   common random numbers: both play every round on the same rolls, so most
+ *   of the noise cancels in the difference.</li>
+ *   <li>{@link #antitheticReturn(DiceSource, long)} estimates the return with
+ *   antithetic pairs of rounds: the second round of a pair replaces each roll
+ *   by its mirror image in the ordering of the rolls by their outcome for the
+ *   bettor, so that wins in one round tend to be matched by losses in the
+ *   other.</li>
+ *   <li>{@link #handTail(int, double, RandomGenerator, long)} estimates the
+ *   probability that a shooter's hand lasts at least a given number of rolls,
+ *   by importance sampling: point-phase rolls are drawn from a distribution in
+ *   which the seven-out is less likely, and each hand is reweighted by its
+ *   likelihood ratio.</li>
+ * </ul>
+ * Each returns an {@link Estimate}, which reports its effective sample size:
+ * the number of independent plain simulation samples that would give the
+ * same variance.
+ * <p>
+ * A hand is the sequence of rolls by one shooter, which ends with a
+ * seven-out: a point-phase roll that loses the line bet. Hand estimates are
+ * therefore meaningful only for "do" rules, such as
+ * {@link RuleTable#PASS_LINE}.
+ *
+ * @author Nicholas Bennett
+ */
+public class VarianceReduction {
+
+  private static final long DEFAULT_SAMPLES = 1_000_000L;
+  private static final int DEFAULT_MIN_ROLLS = 20;
+  private static final double CONVERGENCE = 1e-15;
+  private static final String CRN_MODE = "crn";
+  private static final String ANTITHETIC_MODE = "antithetic";
+  private static final String IMPORTANCE_MODE = "importance";
+  private static final String RESULT_FORMAT = "%s%nexact = %.8g; z = %.3f; elapsed = %.3f s%n";
+  private static final String USAGE = "Usage: VarianceReduction crn|antithetic|importance "
+      + "[samples [seed [min-rolls [tilt]]]]";
+
+  private final RuleTable rules;
+  private final byte[][] ranks = new byte[RuleTable.MAX_SUM + 1][Rolls.COMBINATIONS];
+  private final byte[][] orders = new byte[RuleTable.MAX_SUM + 1][Rolls.COMBINATIONS];
+  private final byte[][] sevenOuts = new byte[RuleTable.MAX_SUM + 1][];
+  private final byte[][] survivals = new byte[RuleTable.MAX_SUM + 1][];
+
+  /**
+   * Runs one of the estimators from the command line, and prints the
+   * estimate, with the exact value and the elapsed time. The {@code crn} mode
+   * compares the pass line with crapless craps; the {@code antithetic}
+   * mode estimates the pass line return; the {@code importance} mode
+   * estimates the probability that a hand lasts at least the specified number
+   * of rolls.
+   *
+   * @param args  Command-line arguments: mode ({@code crn},
+   *              {@code antithetic}, or {@code importance}), number of
+   *              samples (optional, default 1,000,000), seed (optional),
+   *              and, for {@code importance}, the minimum number of rolls
+   *              (optional, default 20) and tilt (optional, default
+   *              {@link #getDefaultTilt(int)}).
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      System.out.println(USAGE);
+      System.exit(1);
+    }
+    long samples = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_SAMPLES;
+    long seed = (args.length > 2) ? Long.parseLong(args[2]) : new SplittableRandom().nextLong();
+    VarianceReduction reduction = new VarianceReduction(RuleTable.PASS_LINE);
+    long start = System.nanoTime();
+    Estimate estimate;
+    double exact;
+    switch (args[0]) {
+      case CRN_MODE:
+        estimate = reduction.compare(RuleTable.CRAPLESS, DiceSource.splittable(seed), samples);
+        exact = new ExactEvaluator(RuleTable.PASS_LINE).getExpectedReturn()
+            - new ExactEvaluator(RuleTable.CRAPLESS).getExpectedReturn();
+        break;
+      case ANTITHETIC_MODE:
+        estimate = reduction.antitheticReturn(DiceSource.splittable(seed), samples);
+        exact = new ExactEvaluator(RuleTable.PASS_LINE).getExpectedReturn();
+        break;
+      case IMPORTANCE_MODE:
+        int minRolls = (args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_MIN_ROLLS;
+        double tilt = (args.length > 4)
+            ? Double.parseDouble(args[4])
+            : reduction.getDefaultTilt(minRolls);
+        estimate = reduction.handTail(minRolls, tilt, new SplittableRandom(seed), samples);
+        exact = reduction.getHandTailProbability(minRolls);
+        break;
+      default:
+        System.out.println(USAGE);
+        System.exit(1);
+        return;
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf(RESULT_FORMAT, estimate, exact,
+        (estimate.getMean() - exact) / estimate.getStandardError(), elapsed / 1e9);
+  }
+
+  /**
+   * Initializes the estimators for the specified rules.
+   *
+   * @param rules   Rules of the variant.
+   */
+  public VarianceReduction(RuleTable rules) {
+    this.rules = rules;
+    for (int point = 0; point <= RuleTable.MAX_SUM; point++) {
+      Integer[] order = new Integer[Rolls.COMBINATIONS];
+      byte[] sevenOut = new byte[Rolls.COMBINATIONS];
+      byte[] survival = new byte[Rolls.COMBINATIONS];
+      int sevenOutCount = 0;
+      int survivalCount = 0;
+      for (int roll = 0; roll < Rolls.COMBINATIONS; roll++) {
+        order[roll] = roll;
+        if (point > 0 && rules.resolve(point, roll) == RuleTable.LOSE) {
+          sevenOut[sevenOutCount++] = (byte) roll;
+        } else {
+          survival[survivalCount++] = (byte) roll;
+        }
+      }
+      int state = point;
+      Arrays.sort(order, (a, b) -> Integer.compare(payoff(state, a), payoff(state, b)));
+      for (int rank = 0; rank < Rolls.COMBINATIONS; rank++) {
+        orders[point][rank] = (byte) (int) order[rank];
+        ranks[point][order[rank]] = (byte) rank;
+      }
+      sevenOuts[point] = Arrays.copyOf(sevenOut, sevenOutCount);
+      survivals[point] = Arrays.copyOf(survival, survivalCount);
+    }
+  }
+
+  /**
+   * Estimates the difference between the expected return per round of the
+   * rules of this instance and that of the specified rules, with common
+   * random numbers: each round is played under both sets of rules on the
+   * same sequence of rolls (drawing further rolls from {@code dice} if one
+   * round lasts longer than the other). The effective sample size is
+   * relative to playing the two sets of rules on independent rolls; it is
+   * large for similar strategies (e.g. pass line and crapless), but may be
+   * smaller than {@code rounds} for opposed ones (e.g. pass and don't pass),
+   * whose returns are negatively correlated.
+   *
+   * @param other     Rules to compare against.
+   * @param dice      Source of dice rolls.
+   * @param rounds    Number of rounds to play under each set of rules.
+   * @return          Estimate of difference in return per round.
+   */
+  public Estimate compare(RuleTable other, DiceSource dice, long rounds) {
+    RollTape tape = new RollTape(dice);
+    Moments difference = new Moments();
+    Moments first = new Moments();
+    Moments second = new Moments();
+    for (long i = 0; i < rounds; i++) {
+      tape.clear();
+      int a = payoff(play(rules, tape, false));
+      tape.rewind();
+      int b = payoff(play(other, tape, false));
+      difference.add(a - b);
+      first.add(a);
+      second.add(b);
+    }
+    return new Estimate("common random numbers", difference,
+        first.getVariance() + second.getVariance());
+  }
+
+  /**
+   * Estimates the expected return per round with antithetic pairs of
+   * rounds. In each state of play (come-out, or each point), the rolls are
+   * ranked by their outcome for the bettor; the second round of each pair
+   * replaces the roll of each rank {@code k} in the first round with the roll
+   * of rank {@code 35 - k}, ranked for its own state. (Since this is a
+   * bijection of equally likely rolls, each round of a pair is, on its own,
+   * played with uniformly distributed rolls.) The effective sample size is
+   * relative to playing {@code 2 * pairs} independent rounds.
+   *
+   * @param dice    Source of dice rolls.
+   * @param pairs   Number of pairs of rounds.
+   * @return        Estimate of return per round.
+   */
+  public Estimate antitheticReturn(DiceSource dice, long pairs) {
+    RollTape tape = new RollTape(dice);
+    Moments pairMeans = new Moments();
+    Moments rounds = new Moments();
+    for (long i = 0; i < pairs; i++) {
+      tape.clear();
+      int a = payoff(play(rules, tape, false));
+      tape.rewind();
+      int b = payoff(play(rules, tape, true));
+      pairMeans.add((a + b) / 2.0);
+      rounds.add(a);
+      rounds.add(b);
+    }
+    return new Estimate("antithetic pairs", pairMeans, rounds.getVariance() / 2);
+  }
+
+  /**
+   * Estimates the probability that a hand lasts at least the specified number
+   * of rolls (i.e. that the shooter does not seven out in the first
+   * {@code minRolls - 1} rolls), by importance sampling. In the point phase,
+   * the probability of a seven-out roll is multiplied by {@code tilt}, and
+   * the remaining rolls are made proportionally more likely; each hand that
+   * reaches {@code minRolls} rolls contributes the product of the likelihood
+   * ratios of its rolls. The effective sample size is relative to simulating
+   * {@code hands} hands without reweighting.
+   *
+   * @param minRolls    Minimum number of rolls in hand.
+   * @param tilt        Factor applied to probability of seven-out, in
+   *                    {@code (0, 1]}; 1 gives plain simulation.
+   * @param rng         Source of randomness.
+   * @param hands       Number of hands to simulate.
+   * @return            Estimate of probability.
+   * @throws IllegalArgumentException   If {@code minRolls} is less than 1, or
+   *                                    {@code tilt} is not in {@code (0, 1]}.
+   */
+  public Estimate handTail(int minRolls, double tilt, RandomGenerator rng, long hands) {
+    if (minRolls < 1) {
+      throw new IllegalArgumentException("Minimum number of rolls must be positive.");
+    }
+    if (!(tilt > 0 && tilt <= 1)) {
+      throw new IllegalArgumentException("Tilt must be in (0, 1].");
+    }
+    double[] sevenOutProbability = new double[RuleTable.MAX_SUM + 1];
+    double[] survivalRatio = new double[RuleTable.MAX_SUM + 1];
+    for (int point = 0; point <= RuleTable.MAX_SUM; point++) {
+      double probability = (double) sevenOuts[point].length / Rolls.COMBINATIONS;
+      sevenOutProbability[point] = tilt * probability;
+      survivalRatio[point] = (1 - probability) / (1 - tilt * probability);
+    }
+    Moments weights = new Moments();
+    for (long i = 0; i < hands; i++) {
+      double weight = 1;
+      int point = 0;
+      for (int rolls = 1; rolls < minRolls && weight > 0; rolls++) {
+        if (point == 0) {
+          int roll = rng.nextInt(Rolls.COMBINATIONS);
+          if (rules.comeOut(roll) == RuleTable.POINT) {
+            point = Rolls.sum(roll);
+          }
+        } else if (rng.nextDouble() < sevenOutProbability[point]) {
+          weight = 0;
+        } else {
+          byte[] survival = survivals[point];
+          int roll = survival[rng.nextInt(survival.length)];
+          weight *= survivalRatio[point];
+          if (rules.resolve(point, roll) != RuleTable.NONE) {
+            point = 0;
+          }
+        }
+      }
+      weights.add(weight);
+    }
+    double mean = weights.getMean();
+    return new Estimate("importance sampling", weights, mean * (1 - mean));
+  }
+
+  /**
+   * Returns the exact probability that a hand lasts at least the specified
+   * number of rolls, computed by iterating the distribution of the state of
+   * play over the rolls of a hand.
+   *
+   * @param minRolls    Minimum number of rolls in hand.
+   * @return            Probability.
+   */
+  public double getHandTailProbability(int minRolls) {
+    double[] state = initialState();
+    for (int rolls = 1; rolls < minRolls; rolls++) {
+      state = step(state);
+    }
+    return sum(state);
+  }
+
+  /**
+   * Returns the exact expected number of rolls in a hand.
+   *
+   * @return    Expected rolls per hand.
+   */
+  public double getExpectedHandRolls() {
+    double[] state = initialState();
+    double expected = 0;
+    for (double alive = 1; alive > CONVERGENCE; alive = sum(state)) {
+      expected += alive;
+      state = step(state);
+    }
+    return expected;
+  }
+
+  /**
+   * Returns a tilt for {@link #handTail(int, double, RandomGenerator, long)}
+   * that makes hands of about {@code minRolls} rolls typical, rather than
+   * rare: the ratio of the expected number of rolls per hand to
+   * {@code minRolls}, if less than 1.
+   *
+   * @param minRolls    Minimum number of rolls in hand.
+   * @return            Tilt.
+   */
+  public double getDefaultTilt(int minRolls) {
+    return Math.min(1, getExpectedHandRolls() / minRolls);
+  }
+
+  private double[] initialState() {
+    double[] state = new double[RuleTable.MAX_SUM + 1];
+    state[0] = 1;
+    return state;
+  }
+
+  /**
+   * Returns the distribution of the state of play (indexed by point, or 0
+   * for the come-out roll) after one more roll, excluding hands that end
+   * with that roll.
+   */
+  private double[] step(double[] state) {
+    double[] next = new double[RuleTable.MAX_SUM + 1];
+    for (int point = 0; point <= RuleTable.MAX_SUM; point++) {
+      if (state[point] > 0) {
+        double probability = state[point] / Rolls.COMBINATIONS;
+        for (int roll = 0; roll < Rolls.COMBINATIONS; roll++) {
+          if (point == 0) {
+            next[(rules.comeOut(roll) == RuleTable.POINT) ? Rolls.sum(roll) : 0] += probability;
+          } else {
+            int outcome = rules.resolve(point, roll);
+            if (outcome == RuleTable.NONE) {
+              next[point] += probability;
+            } else if (outcome != RuleTable.LOSE) {
+              next[0] += probability;
+            }
+          }
+        }
+      }
+    }
+    return next;
+  }
+
+  private static double sum(double[] state) {
+    double sum = 0;
+    for (double probability : state) {
+      sum += probability;
+    }
+    return sum;
+  }
+
+  /**
+   * Plays a round, reading rolls from the tape, and mapping each to its
+   * antithetic counterpart for the current state, if requested.
+   */
+  private int play(RuleTable rules, RollTape tape, boolean antithetic) {
+    int roll = tape.next();
+    if (antithetic) {
+      roll = mirror(0, roll);
+    }
+    int outcome = rules.comeOut(roll);
+    if (outcome == RuleTable.POINT) {
+      int point = Rolls.sum(roll);
+      do {
+        roll = tape.next();
+        if (antithetic) {
+          roll = mirror(point, roll);
+        }
+        outcome = rules.resolve(point, roll);
+      } while (outcome == RuleTable.NONE);
+    }
+    return outcome;
+  }
+
+  private int mirror(int state, int roll) {
+    return orders[state][Rolls.COMBINATIONS - 1 - ranks[state][roll]];
+  }
+
+  /**
+   * Returns a value by which rolls in the specified state (0 for the come-out
+   * roll, or the point) are ranked: the payoff of the resolved outcome, or,
+   * for a come-out roll that establishes a point, a value between those of a
+   * loss and a win.
+   */
+  private int payoff(int state, int roll) {
+    int outcome = (state == 0) ? rules.comeOut(roll) : rules.resolve(state, roll);
+    return (outcome == RuleTable.POINT || outcome == RuleTable.NONE) ? 0 : 2 * payoff(outcome);
+  }
+
+  private static int payoff(int outcome) {
+    return (outcome == RuleTable.WIN) ? 1 : (outcome == RuleTable.LOSE) ? -1 : 0;
+  }
+
+  /**
+   * Estimate of a mean, with its variance and effective sample size.
+   */
+  public static class Estimate {
+
+    private static final String FORMAT = "%s: estimate = %.8g; standard error = %.3g; "
+        + "samples = %d; effective sample size = %.4g";
+
+    private final String method;
+    private final long samples;
+    private final double mean;
+    private final double variance;
+    private final double naiveVariance;
+
+    private Estimate(String method, Moments moments, double naiveVariance) {
+      this.method = method;
+      samples = moments.getCount();
+      mean = moments.getMean();
+      variance = moments.getVariance();
+      this.naiveVariance = naiveVariance;
+    }
+
+    /**
+     * Returns the number of samples (rounds, pairs, or hands) simulated.
+     *
+     * @return    samples
+     */
+    public long getSamples() {
+      return samples;
+    }
+
+    /**
+     * Returns the estimated mean.
+     *
+     * @return    estimate
+     */
+    public double getMean() {
+      return mean;
+    }
+
+    /**
+     * Returns the standard error of the estimate.
+     *
+     * @return    standard error
+     */
+    public double getStandardError() {
+      return Math.sqrt(variance / samples);
+    }
+
+    /**
+     * Returns the half-width of a normal-approximation confidence interval
+     * for the mean.
+     *
+     * @param confidence    Confidence level, in {@code (0, 1)} (e.g. 0.99).
+     * @return              Half-width of interval.
+     */
+    public double getHalfWidth(double confidence) {
+      return LiveStatistics.normalQuantile(0.5 + confidence / 2) * getStandardError();
+    }
+
+    /**
+     * Returns the number of independent samples of plain simulation that
+     * would estimate the mean with the same variance as this estimate. A
+     * value greater than {@link #getSamples()} means that the method reduced
+     * the variance.
+     *
+     * @return    effective sample size
+     */
+    public double getEffectiveSampleSize() {
+      return (variance > 0) ? samples * naiveVariance / variance : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(FORMAT, method, mean, getStandardError(), samples,
+          getEffectiveSampleSize());
+    }
+
+  }
+
+  /**
+   * Running count, mean, and variance of a sequence of values, updated by
+   * Welford's method.
+   */
+  private static class Moments {
+
+    private long count;
+    private double mean;
+    private double sumSquares;
+
+    private void add(double value) {
+      count++;
+      double delta = value - mean;
+      mean += delta / count;
+      sumSquares += delta * (value - mean);
+    }
+
+    private long getCount() {
+      return count;
+    }
+
+    private double getMean() {
+      return mean;
+    }
+
+    private double getVariance() {
+      return (count > 1) ? sumSquares / (count - 1) : 0;
+    }
+
+  }
+
+  /**
+   * Record of the rolls of a round, which can be replayed for another round;
+   * if the replaying round lasts longer, further rolls are drawn from the
+   * source and recorded.
+   */
+  private static class RollTape {
+
+    private final DiceSource dice;
+    private byte[] rolls = new byte[64];
+    private int length;
+    private int position;
+
+    private RollTape(DiceSource dice) {
+      this.dice = dice;
+    }
+
+    private void clear() {
+      length = 0;
+      position = 0;
+    }
+
+    private void rewind() {
+      position = 0;
+    }
+
+    private int next() {
+      if (position == length) {
+        if (length == rolls.length) {
+          rolls = Arrays.copyOf(rolls, 2 * length);
+        }
+        rolls[length++] = (byte) dice.nextRoll();
+      }
+      return rolls[position++];
+    }
+
+  }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * VectorSumCounter.java
+ */
+package edu.cnm.deepdive.craps;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Counts the sums of blocks of roll codes with the (incubating) Vector API.
+ * This class refers to {@code jdk.incubator.vector}, and so must only be
+ * loaded when that module is present in the boot layer; {@link ComeOutResolver}
+ * checks this before using it.
+ * <p>
+ * Each vector of roll codes is converted to sums in byte lanes, without
+ * division: the sum of code {@code r} is {@code r + 2 - 5 * (r / 6)}, and
+ * {@code r / 6} is the number of the thresholds 6, 12, &hellip;, 30 that
+ * {@code r} reaches. The lanes equal to each sum are then counted with a
+ * single mask population count per sum, so the cost per vector is the same
+ * regardless of the number of lanes.
+ *
+ * @author Nicholas Bennett
+ */
+final class VectorSumCounter {
+
+  private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+  private static final int MIN_SUM = 2;
+
+  private VectorSumCounter() {
+    // Not instantiable.
+  }
+
+  /**
+   * Adds the number of rolls of each sum in the specified range to the
+   * corresponding element of {@code sums}.
+   */
+  static void count(byte[] rolls, int offset, int length, long[] sums) {
+    int end = offset + length;
+    int bound = offset + SPECIES.loopBound(length);
+    int index = offset;
+    for (; index < bound; index += SPECIES.length()) {
+      ByteVector roll = ByteVector.fromArray(SPECIES, rolls, index);
+      ByteVector sum = roll.add((byte) MIN_SUM);
+      for (int threshold = Rolls.FACES; threshold < Rolls.COMBINATIONS;
+          threshold += Rolls.FACES) {
+        VectorMask<Byte> reached = roll.compare(VectorOperators.GE, (byte) threshold);
+        sum = sum.sub((byte) (Rolls.FACES - 1), reached);
+      }
+      for (int s = MIN_SUM; s <= RuleTable.MAX_SUM; s++) {
+        sums[s] += sum.eq((byte) s).trueCount();
+      }
+    }
+    for (; index < end; index++) {
+      sums[Rolls.sum(rolls[index])]++;
+    }
+  }
+
+}
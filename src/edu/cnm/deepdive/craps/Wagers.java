@@ -0,0 +1,391 @@
+/**
+ * Wagers.java
+ */
+package edu.cnm.deepdive.craps;
+
+/**
+ * This class implements a single player's wagers on a craps layout, with
+ * bankroll accounting: pass and don't pass, come and don't come, free odds
+ * behind all of those, and place bets on the numbers. The table tracks its own
+ * point (i.e. the position of the puck), so it can follow any stream of
+ * rolls&mdash;from a {@link DiceSource}, a {@link StateMachine.Display}
+ * callback, or a recorded log.
+ * <p>
+ * Each roll passed to {@link #settle(int)} is evaluated once (its sum and
+ * number index are computed once, and line bets are resolved by lookup in the
+ * same {@link RuleTable} instances used by {@link StateMachine}), and every
+ * affected wager is resolved from it. Wagers are not represented as objects:
+ * all stakes are held in a single {@code long[]}, indexed by bet type and
+ * number, and winnings are computed from fixed-point payout tables, so that
+ * settlement involves no allocation and no floating-point arithmetic.
+ * <p>
+ * Amounts are in whole betting units; as in a casino, a payout that is not a
+ * whole number of units is rounded down. Following common practice, place
+ * bets are off, and odds on come bets are returned rather than resolved, on
+ * the come-out roll; odds laid on don't come bets are always working.
+ *
+ * @author Nicholas Bennett
+ */
+public class Wagers {
+
+  /**
+   * Scale of the fixed-point payout tables: a table entry of {@code p} pays
+   * {@code p / PAYOUT_SCALE} to 1. 30 is the least common multiple of the
+   * denominators of all of the payout ratios, so every ratio is exact.
+   */
+  public static final int PAYOUT_SCALE = 30;
+  /** Default maximum odds, as a multiple of the associated line bet. */
+  public static final int DEFAULT_MAX_ODDS = 3;
+
+  static final int[] NUMBERS = {4, 5, 6, 8, 9, 10};
+  /** Payouts of free odds behind pass and come bets, by number. */
+  static final int[] ODDS_PAYOUT = {0, 0, 0, 0, 60, 45, 36, 0, 36, 45, 60, 0, 0};
+  /** Payouts of free odds laid on don't pass and don't come bets, by number. */
+  static final int[] LAY_PAYOUT = {0, 0, 0, 0, 15, 20, 25, 0, 25, 20, 15, 0, 0};
+  /** Payouts of place bets, by number. */
+  static final int[] PLACE_PAYOUT = {0, 0, 0, 0, 54, 42, 35, 0, 35, 42, 54, 0, 0};
+  /** Index of each number in {@link #NUMBERS}; -1 for all other sums. */
+  static final int[] NUMBER_INDEX = {-1, -1, -1, -1, 0, 1, 2, -1, 3, 4, 5, -1, -1};
+
+  private static final int PASS = 0;
+  private static final int DONT_PASS = 1;
+  private static final int PASS_ODDS = 2;
+  private static final int DONT_PASS_ODDS = 3;
+  private static final int COME = 4;
+  private static final int DONT_COME = 5;
+  private static final int COME_ON = 6;
+  private static final int COME_ODDS_ON = COME_ON + NUMBERS.length;
+  private static final int DONT_COME_ON = COME_ODDS_ON + NUMBERS.length;
+  private static final int DONT_COME_ODDS_ON = DONT_COME_ON + NUMBERS.length;
+  private static final int PLACE_ON = DONT_COME_ODDS_ON + NUMBERS.length;
+  private static final int SLOTS = PLACE_ON + NUMBERS.length;
+
+  private static final RuleTable DO = RuleTable.PASS_LINE;
+  private static final RuleTable DONT = RuleTable.DONT_PASS_BAR_12;
+
+  private final long[] stakes = new long[SLOTS];
+  private final int maxOdds;
+  private long bankroll;
+  private int point;
+
+  /**
+   * Initializes the table with the specified bankroll, and
+   * {@link #DEFAULT_MAX_ODDS} odds.
+   *
+   * @param bankroll    Initial bankroll, in betting units.
+   */
+  public Wagers(long bankroll) {
+    this(bankroll, DEFAULT_MAX_ODDS);
+  }
+
+  /**
+   * Initializes the table with the specified bankroll and maximum odds.
+   *
+   * @param bankroll    Initial bankroll, in betting units.
+   * @param maxOdds     Maximum odds, as a multiple of the associated line bet.
+   */
+  public Wagers(long bankroll, int maxOdds) {
+    this.bankroll = bankroll;
+    this.maxOdds = maxOdds;
+  }
+
+  /**
+   * Places (or adds to) a wager of a type that is not made on a specific
+   * number.
+   *
+   * @param type      Type of wager.
+   * @param amount    Amount to wager, in betting units.
+   * @throws IllegalArgumentException   If {@code type} requires a number, if
+   *                                    {@code amount} is not positive, or if
+   *                                    the bankroll is insufficient.
+   * @throws IllegalStateException      If the wager may not be made in the
+   *                                    current state of the table.
+   */
+  public void placeBet(BetType type, long amount) {
+    if (type.isNumbered()) {
+      throw new IllegalArgumentException(String.format("A %s bet requires a number.", type));
+    }
+    placeBet(type, 0, amount);
+  }
+
+  /**
+   * Places (or adds to) a wager of the specified type. For a type that is not
+   * made on a specific number, {@code number} is ignored.
+   *
+   * @param type      Type of wager.
+   * @param number    Number (4, 5, 6, 8, 9, or 10) on which the wager is made.
+   * @param amount    Amount to wager, in betting units.
+   * @throws IllegalArgumentException   If {@code number} is not valid for
+   *                                    {@code type}, if {@code amount} is not
+   *                                    positive, or if the bankroll is
+   *                                    insufficient.
+   * @throws IllegalStateException      If the wager may not be made in the
+   *                                    current state of the table.
+   */
+  public void placeBet(BetType type, int number, long amount) {
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Amount must be positive.");
+    }
+    if (amount > bankroll) {
+      throw new IllegalArgumentException("Insufficient bankroll.");
+    }
+    int slot = slot(type, number);
+    switch (type) {
+      case PASS:
+      case DONT_PASS:
+        if (point != 0) {
+          throw new IllegalStateException("Line bets may only be made on the come-out roll.");
+        }
+        break;
+      case COME:
+      case DONT_COME:
+        if (point == 0) {
+          throw new IllegalStateException("Come bets may only be made when a point is on.");
+        }
+        break;
+      case PASS_ODDS:
+      case DONT_PASS_ODDS:
+        if (point == 0) {
+          throw new IllegalStateException("Odds may only be taken when a point is on.");
+        }
+        checkOdds(slot - 2, slot, amount);
+        break;
+      case COME_ODDS:
+        checkOdds(slot - (COME_ODDS_ON - COME_ON), slot, amount);
+        break;
+      case DONT_COME_ODDS:
+        checkOdds(slot - (DONT_COME_ODDS_ON - DONT_COME_ON), slot, amount);
+        break;
+      default:
+        break;
+    }
+    bankroll -= amount;
+    stakes[slot] += amount;
+  }
+
+  /**
+   * Takes down a place bet, returning its stake to the bankroll.
+   *
+   * @param number    Number of place bet.
+   * @return          Stake returned.
+   * @throws IllegalArgumentException   If {@code number} is not valid.
+   */
+  public long takeDown(int number) {
+    int slot = slot(BetType.PLACE, number);
+    long stake = stakes[slot];
+    stakes[slot] = 0;
+    bankroll += stake;
+    return stake;
+  }
+
+  /**
+   * Resolves every active wager affected by the specified roll, updates the
+   * bankroll and the point, and returns the net amount won (positive) or lost
+   * (negative) on this roll.
+   *
+   * @param roll    Roll code (see {@link Rolls}).
+   * @return        Net result of roll.
+   */
+  public long settle(int roll) {
+    int sum = Rolls.sum(roll);
+    int index = NUMBER_INDEX[sum];
+    boolean comeOut = (point == 0);
+    long net = 0;
+    if (sum == 7) {
+      for (int i = 0; i < NUMBERS.length; i++) {
+        net += resolveNumber(i, roll, comeOut);
+        if (!comeOut) {
+          net -= stakes[PLACE_ON + i];
+          stakes[PLACE_ON + i] = 0;
+        }
+      }
+    } else if (index >= 0) {
+      net += resolveNumber(index, roll, comeOut);
+      if (!comeOut) {
+        long win = stakes[PLACE_ON + index] * PLACE_PAYOUT[sum] / PAYOUT_SCALE;
+        bankroll += win;
+        net += win;
+      }
+    }
+    net += resolvePending(COME, COME_ON, DO.comeOut(roll), index);
+    net += resolvePending(DONT_COME, DONT_COME_ON, DONT.comeOut(roll), index);
+    if (comeOut) {
+      int outcome = DO.comeOut(roll);
+      if (outcome == RuleTable.POINT) {
+        point = sum;
+      } else {
+        net += resolve(PASS, outcome);
+        net += resolve(DONT_PASS, DONT.comeOut(roll));
+      }
+    } else {
+      int outcome = DO.resolve(point, roll);
+      if (outcome != RuleTable.NONE) {
+        net += resolve(PASS, outcome);
+        net += resolveOdds(PASS_ODDS, outcome, ODDS_PAYOUT[point]);
+        outcome = DONT.resolve(point, roll);
+        net += resolve(DONT_PASS, outcome);
+        net += resolveOdds(DONT_PASS_ODDS, outcome, LAY_PAYOUT[point]);
+        point = 0;
+      }
+    }
+    return net;
+  }
+
+  /**
+   * Returns the current bankroll, i.e. the amount not currently wagered.
+   *
+   * @return    bankroll
+   */
+  public long getBankroll() {
+    return bankroll;
+  }
+
+  /**
+   * Returns the total amount currently wagered.
+   *
+   * @return    amount at risk
+   */
+  public long getAtRisk() {
+    long total = 0;
+    for (long stake : stakes) {
+      total += stake;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the current point, or 0 if no point is established.
+   *
+   * @return    point
+   */
+  public int getPoint() {
+    return point;
+  }
+
+  /**
+   * Returns the maximum odds, as a multiple of the associated line bet.
+   *
+   * @return    maximum odds
+   */
+  public int getMaxOdds() {
+    return maxOdds;
+  }
+
+  /**
+   * Returns the current stake of a wager of a type that is not made on a
+   * specific number.
+   *
+   * @param type    Type of wager.
+   * @return        Stake, in betting units.
+   */
+  public long getStake(BetType type) {
+    return getStake(type, 0);
+  }
+
+  /**
+   * Returns the current stake of a wager. For {@link BetType#COME} and
+   * {@link BetType#DONT_COME}, a {@code number} of 0 refers to a bet that has
+   * not yet traveled to a number; otherwise, for a type that is not made on a
+   * specific number, {@code number} is ignored.
+   *
+   * @param type      Type of wager.
+   * @param number    Number on which the wager is made.
+   * @return          Stake, in betting units.
+   */
+  public long getStake(BetType type, int number) {
+    if (number != 0 && (type == BetType.COME || type == BetType.DONT_COME)) {
+      return stakes[((type == BetType.COME) ? COME_ON : DONT_COME_ON) + index(number)];
+    }
+    return stakes[slot(type, number)];
+  }
+
+  private static int slot(BetType type, int number) {
+    switch (type) {
+      case PASS:
+        return PASS;
+      case DONT_PASS:
+        return DONT_PASS;
+      case PASS_ODDS:
+        return PASS_ODDS;
+      case DONT_PASS_ODDS:
+        return DONT_PASS_ODDS;
+      case COME:
+        return COME;
+      case DONT_COME:
+        return DONT_COME;
+      case COME_ODDS:
+        return COME_ODDS_ON + index(number);
+      case DONT_COME_ODDS:
+        return DONT_COME_ODDS_ON + index(number);
+      default:
+        return PLACE_ON + index(number);
+    }
+  }
+
+  private static int index(int number) {
+    int index = (number >= 0 && number < NUMBER_INDEX.length) ? NUMBER_INDEX[number] : -1;
+    if (index < 0) {
+      throw new IllegalArgumentException(String.format("%d is not a number.", number));
+    }
+    return index;
+  }
+
+  private void checkOdds(int lineSlot, int oddsSlot, long amount) {
+    if (stakes[lineSlot] == 0) {
+      throw new IllegalStateException("Odds require an active line or come bet.");
+    }
+    if (stakes[oddsSlot] + amount > maxOdds * stakes[lineSlot]) {
+      throw new IllegalArgumentException(
+          String.format("Odds may not exceed %dx the associated bet.", maxOdds));
+    }
+  }
+
+  private long resolveNumber(int index, int roll, boolean comeOut) {
+    int number = NUMBERS[index];
+    int outcome = DO.resolve(number, roll);
+    long net = resolve(COME_ON + index, outcome);
+    if (comeOut) {
+      bankroll += stakes[COME_ODDS_ON + index];
+      stakes[COME_ODDS_ON + index] = 0;
+    } else {
+      net += resolveOdds(COME_ODDS_ON + index, outcome, ODDS_PAYOUT[number]);
+    }
+    outcome = DONT.resolve(number, roll);
+    net += resolve(DONT_COME_ON + index, outcome);
+    net += resolveOdds(DONT_COME_ODDS_ON + index, outcome, LAY_PAYOUT[number]);
+    return net;
+  }
+
+  private long resolvePending(int slot, int numberSlot, int outcome, int index) {
+    if (outcome == RuleTable.POINT) {
+      stakes[numberSlot + index] += stakes[slot];
+      stakes[slot] = 0;
+      return 0;
+    }
+    return resolve(slot, outcome);
+  }
+
+  private long resolve(int slot, int outcome) {
+    return resolveOdds(slot, outcome, PAYOUT_SCALE);
+  }
+
+  private long resolveOdds(int slot, int outcome, int payout) {
+    long stake = stakes[slot];
+    if (stake == 0 || outcome == RuleTable.NONE) {
+      return 0;
+    }
+    stakes[slot] = 0;
+    switch (outcome) {
+      case RuleTable.WIN:
+        long win = stake * payout / PAYOUT_SCALE;
+        bankroll += stake + win;
+        return win;
+      case RuleTable.LOSE:
+        return -stake;
+      default:
+        bankroll += stake;
+        return 0;
+    }
+  }
+
+}